@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.Response;
+import org.cdsframework.base.BaseDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the per request BaseRSService primary key paths: path parsing, primary key DTO creation and
+ * resource path generation.
+ *
+ * @author HLN Consulting, LLC
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BaseRSServiceBenchmark {
+
+    private BenchmarkRSService benchmarkRSService;
+    private BenchmarkRSService compositeRSService;
+    private List<PathSegment> singleKeyPath;
+    private List<PathSegment> compositeKeyPath;
+    private BenchmarkDTO benchmarkDTO;
+    private CompositeBenchmarkDTO compositeBenchmarkDTO;
+
+    @Setup
+    public void setup() {
+        List<BaseDTO> queryListResult = new ArrayList<>();
+        for (long i = 0; i < 25; i++) {
+            queryListResult.add(newBenchmarkDTO(i));
+        }
+        benchmarkRSService = new BenchmarkRSService(StubGeneralMGR.newInstance(queryListResult, 25L), BenchmarkRSService.BENCHMARK_RESOURCE);
+        compositeRSService = new BenchmarkRSService(StubGeneralMGR.newInstance(queryListResult, 25L), BenchmarkRSService.COMPOSITE_BENCHMARK_RESOURCE);
+
+        singleKeyPath = Arrays.asList(BenchmarkRSService.newPathSegment("123456"));
+        compositeKeyPath = Arrays.asList(
+                BenchmarkRSService.newPathSegment("123456"),
+                BenchmarkRSService.newPathSegment("CHILD-A"),
+                BenchmarkRSService.newPathSegment("7"));
+
+        benchmarkDTO = newBenchmarkDTO(123456L);
+        compositeBenchmarkDTO = new CompositeBenchmarkDTO();
+        compositeBenchmarkDTO.setParentId(123456L);
+        compositeBenchmarkDTO.setChildCode("CHILD-A");
+        compositeBenchmarkDTO.setVersion(7);
+    }
+
+    @Benchmark
+    public Object getPrimaryKeysFromPathSingle() throws Exception {
+        return benchmarkRSService.primaryKeysFromPath(BenchmarkRSService.BENCHMARK_RESOURCE, singleKeyPath);
+    }
+
+    @Benchmark
+    public Object getPrimaryKeysFromPathComposite() throws Exception {
+        return compositeRSService.primaryKeysFromPath(BenchmarkRSService.COMPOSITE_BENCHMARK_RESOURCE, compositeKeyPath);
+    }
+
+    /**
+     * Exercises getPrimaryKeyDTO and the property bag parse through the stub MGR.
+     *
+     * @return
+     * @throws Exception
+     */
+    @Benchmark
+    public BenchmarkDTO findByPrimaryKeyMain() throws Exception {
+        return benchmarkRSService.findByPrimaryKeyMain("123456", BenchmarkDTO.class, null, null, "benchmark-session");
+    }
+
+    @Benchmark
+    public Response getPathSingle() {
+        return benchmarkRSService.createdResponse(benchmarkDTO);
+    }
+
+    @Benchmark
+    public Response getPathComposite() {
+        return compositeRSService.createdResponse(compositeBenchmarkDTO);
+    }
+
+    private static BenchmarkDTO newBenchmarkDTO(long id) {
+        BenchmarkDTO dto = new BenchmarkDTO();
+        dto.setBenchmarkId(id);
+        dto.setName("name " + id);
+        dto.setCode("CODE" + id);
+        dto.setDescription("description for " + id);
+        dto.setSequence((int) id);
+        dto.setParentId(id / 10);
+        dto.setActive(id % 2 == 0);
+        dto.setStatus(BenchmarkDTO.Status.ACTIVE);
+        dto.setEffectiveDate(new Date(1451606400000L + id));
+        dto.setCreateId("benchmark");
+        dto.setCreateDatetime(new Date(1451606400000L));
+        dto.setLastModId("benchmark");
+        dto.setLastModDatetime(new Date(1451606400000L));
+        return dto;
+    }
+}
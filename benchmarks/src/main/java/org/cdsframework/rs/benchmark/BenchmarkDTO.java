@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.benchmark;
+
+import java.util.Date;
+import org.cdsframework.annotation.Id;
+import org.cdsframework.base.BaseDTO;
+
+/**
+ * Synthetic single primary key DTO used to drive the RS hot paths.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class BenchmarkDTO extends BaseDTO {
+
+    private static final long serialVersionUID = -1726512841205238331L;
+
+    public enum Status {
+        ACTIVE, INACTIVE
+    }
+
+    @Id
+    private Long benchmarkId;
+    private String name;
+    private String code;
+    private String description;
+    private Integer sequence;
+    private Long parentId;
+    private Boolean active;
+    private Status status;
+    private Date effectiveDate;
+    private String createId;
+    private Date createDatetime;
+    private String lastModId;
+    private Date lastModDatetime;
+
+    public Long getBenchmarkId() {
+        return benchmarkId;
+    }
+
+    public void setBenchmarkId(Long benchmarkId) {
+        this.benchmarkId = benchmarkId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Integer getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Integer sequence) {
+        this.sequence = sequence;
+    }
+
+    public Long getParentId() {
+        return parentId;
+    }
+
+    public void setParentId(Long parentId) {
+        this.parentId = parentId;
+    }
+
+    public Boolean getActive() {
+        return active;
+    }
+
+    public void setActive(Boolean active) {
+        this.active = active;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Date getEffectiveDate() {
+        return effectiveDate;
+    }
+
+    public void setEffectiveDate(Date effectiveDate) {
+        this.effectiveDate = effectiveDate;
+    }
+
+    public String getCreateId() {
+        return createId;
+    }
+
+    public void setCreateId(String createId) {
+        this.createId = createId;
+    }
+
+    public Date getCreateDatetime() {
+        return createDatetime;
+    }
+
+    public void setCreateDatetime(Date createDatetime) {
+        this.createDatetime = createDatetime;
+    }
+
+    public String getLastModId() {
+        return lastModId;
+    }
+
+    public void setLastModId(String lastModId) {
+        this.lastModId = lastModId;
+    }
+
+    public Date getLastModDatetime() {
+        return lastModDatetime;
+    }
+
+    public void setLastModDatetime(Date lastModDatetime) {
+        this.lastModDatetime = lastModDatetime;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriBuilder;
+import javax.ws.rs.core.UriInfo;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.ejb.local.GeneralMGRInterface;
+import org.cdsframework.enumeration.Operation;
+import org.cdsframework.exceptions.MtsException;
+import org.cdsframework.rs.base.BaseRSService;
+
+/**
+ * BaseRSService wired to the stub MGR, a fixed resource map and a fixed request URI so the request hot paths can be
+ * driven outside of a container.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class BenchmarkRSService extends BaseRSService {
+
+    public static final String BENCHMARK_RESOURCE = "benchmark";
+    public static final String COMPOSITE_BENCHMARK_RESOURCE = "composite-benchmark";
+    private static final URI BASE_URI = URI.create("http://localhost:8080/mts-rs/resources/");
+
+    private final GeneralMGRInterface generalMGR;
+    private final UriInfo uriInfo;
+    private final Map<String, Class<? extends BaseDTO>> resourceMap = new HashMap<>();
+
+    public BenchmarkRSService(GeneralMGRInterface generalMGR, String resource) {
+        super(BenchmarkRSService.class);
+        this.generalMGR = generalMGR;
+        this.uriInfo = newUriInfo(BASE_URI.resolve(resource));
+        resourceMap.put(BENCHMARK_RESOURCE, BenchmarkDTO.class);
+        resourceMap.put(COMPOSITE_BENCHMARK_RESOURCE, CompositeBenchmarkDTO.class);
+    }
+
+    @Override
+    public GeneralMGRInterface getGeneralMGR() throws MtsException {
+        return generalMGR;
+    }
+
+    @Override
+    protected Class<? extends BaseDTO> getClassForResource(String resource) throws MtsException {
+        Class<? extends BaseDTO> cls = resourceMap.get(resource);
+        if (cls == null) {
+            throw new MtsException("The resource " + resource + " requested does not exist, please review the API");
+        }
+        return cls;
+    }
+
+    @Override
+    public UriInfo getUriContext() {
+        return uriInfo;
+    }
+
+    public Object primaryKeysFromPath(String resource, List<PathSegment> path) throws MtsException {
+        return getPrimaryKeysFromPath(resource, path);
+    }
+
+    /**
+     * getResponse resolves the resource location through the private getPath.
+     *
+     * @param dto
+     * @return
+     */
+    public Response createdResponse(BaseDTO dto) {
+        return getResponse(dto, true, Operation.ADD);
+    }
+
+    public static PathSegment newPathSegment(final String path) {
+        return new PathSegment() {
+            @Override
+            public String getPath() {
+                return path;
+            }
+
+            @Override
+            public MultivaluedMap<String, String> getMatrixParameters() {
+                return new MultivaluedHashMap<>();
+            }
+        };
+    }
+
+    private static UriInfo newUriInfo(final URI absolutePath) {
+        return (UriInfo) Proxy.newProxyInstance(UriInfo.class.getClassLoader(), new Class[]{UriInfo.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "getAbsolutePathBuilder":
+                        return UriBuilder.fromUri(absolutePath);
+                    case "getAbsolutePath":
+                    case "getRequestUri":
+                        return absolutePath;
+                    case "getBaseUri":
+                        return BASE_URI;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            }
+        });
+    }
+}
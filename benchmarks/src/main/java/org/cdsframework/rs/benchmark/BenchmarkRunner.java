@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.util.Optional;
+
+/**
+ * Runs the RS benchmarks with the GC profiler attached so throughput and allocation rate (gc.alloc.rate.norm) are
+ * reported together. Results are also written as JSON for comparison between runs.
+ *
+ * The RS tier caches (property map, prototype, MGR client and row count) are on by default, so each benchmark
+ * is run twice: once with the caches disabled (the cold request path, written to jmh-result-uncached.json) and once with
+ * them enabled at their defaults (written to jmh-result-cached.json). The cache settings are pinned as forked JVM
+ * system properties so the comparison does not drift when the defaults change. Pass -Dbenchmark.caches=disabled or
+ * -Dbenchmark.caches=enabled to the runner to run only one of the passes.
+ *
+ * Any standard JMH command line options are honored, i.e; java -jar target/benchmarks.jar getQueryMap -f 1. The cache
+ * settings only apply to forked runs, -f 0 measures whatever the runner JVM was started with.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class BenchmarkRunner {
+
+    private static final String CACHES = System.getProperty("benchmark.caches", "both");
+
+    private static final List<String> CACHES_DISABLED = Arrays.asList(
+            "-Dorg.cdsframework.rs.propertyCacheSize=0",
+            "-Dorg.cdsframework.rs.prototypeCacheTtl=0",
+            "-Dorg.cdsframework.rs.mgrClientCache=false",
+            "-Dorg.cdsframework.rs.rowCountCacheTtl=0",
+            "-Dorg.cdsframework.rs.dtoCacheTtl=0");
+
+    private static final List<String> CACHES_ENABLED = Arrays.asList(
+            "-Dorg.cdsframework.rs.propertyCacheSize=256",
+            "-Dorg.cdsframework.rs.prototypeCacheTtl=300000",
+            "-Dorg.cdsframework.rs.mgrClientCache=true",
+            "-Dorg.cdsframework.rs.rowCountCacheTtl=30000",
+            "-Dorg.cdsframework.rs.dtoCacheTtl=0");
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        if (!"enabled".equalsIgnoreCase(CACHES)) {
+            run(commandLineOptions, CACHES_DISABLED, "jmh-result-uncached.json");
+        }
+        if (!"disabled".equalsIgnoreCase(CACHES)) {
+            run(commandLineOptions, CACHES_ENABLED, "jmh-result-cached.json");
+        }
+    }
+
+    private static void run(CommandLineOptions commandLineOptions, List<String> cacheSettings, String result)
+            throws RunnerException {
+        OptionsBuilder optionsBuilder = new OptionsBuilder();
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            optionsBuilder.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark.*");
+        }
+        // The builder's jvmArgsAppend replaces the parent's, keep any passed on the command line
+        List<String> jvmArgsAppend = new ArrayList<>(cacheSettings);
+        Optional<Collection<String>> commandLineJvmArgsAppend = commandLineOptions.getJvmArgsAppend();
+        if (commandLineJvmArgsAppend.hasValue()) {
+            jvmArgsAppend.addAll(commandLineJvmArgsAppend.get());
+        }
+        Options options = optionsBuilder
+                .parent(commandLineOptions)
+                .jvmArgsAppend(jvmArgsAppend.toArray(new String[jvmArgsAppend.size()]))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+        new Runner(options).run();
+    }
+}
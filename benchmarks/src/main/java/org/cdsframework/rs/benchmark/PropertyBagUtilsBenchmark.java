@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.TimeUnit;
+import org.cdsframework.dto.PropertyBagDTO;
+import org.cdsframework.rs.util.PropertyBagUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the property query parameter decode that every endpoint performs.
+ *
+ * @author HLN Consulting, LLC
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyBagUtilsBenchmark {
+
+    /**
+     * EMPTY - no property parameter supplied
+     * SMALL - query class only
+     * DATATABLE - the property string sent by the data table UI
+     */
+    @Param({"EMPTY", "SMALL", "DATATABLE"})
+    public String propertyShape;
+
+    private String property;
+
+    @Setup
+    public void setup() throws UnsupportedEncodingException {
+        switch (propertyShape) {
+            case "EMPTY":
+                property = null;
+                break;
+            case "SMALL":
+                property = URLEncoder.encode("{\"queryClass\":\"FindAll\"}", "UTF-8");
+                break;
+            case "DATATABLE":
+                property = URLEncoder.encode("{\"queryClass\":\"ByGeneralProperties\",\"operationName\":\"findByQueryList\","
+                        + "\"jQueryDataTable\":true,\"JQueryDataTableRecordsTotal\":true,\"rsClient\":true,"
+                        + "\"returnResource\":\"true\",\"responseType\":\"java.lang.Long\"}", "UTF-8");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown propertyShape: " + propertyShape);
+        }
+    }
+
+    @Benchmark
+    public PropertyBagDTO getJsonPropertyBagDTO() throws Exception {
+        return PropertyBagUtils.getJsonPropertyBagDTO(property);
+    }
+}
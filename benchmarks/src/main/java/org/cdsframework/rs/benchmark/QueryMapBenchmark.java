@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.benchmark;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.dto.PropertyBagDTO;
+import org.cdsframework.util.support.CoreConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of BaseRSService.getQueryMap, the filter decode and DTO binding done for every query request.
+ *
+ * @author HLN Consulting, LLC
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryMapBenchmark {
+
+    /**
+     * KNOWN - every filter key maps to a DTO field
+     * MIXED - half of the filter keys have no matching DTO field
+     * PAGED - data table style filter, DTO fields plus the paging/sort keys
+     */
+    @Param({"KNOWN", "MIXED", "PAGED"})
+    public String filterShape;
+
+    private BenchmarkRSService benchmarkRSService;
+    private String filter;
+
+    @Setup
+    public void setup() throws UnsupportedEncodingException {
+        benchmarkRSService = new BenchmarkRSService(StubGeneralMGR.newInstance(new ArrayList<BaseDTO>(), 0L), BenchmarkRSService.BENCHMARK_RESOURCE);
+        filter = URLEncoder.encode(getFilterJson(filterShape), "UTF-8");
+    }
+
+    @Benchmark
+    public BenchmarkDTO getQueryMap() throws Exception {
+        return benchmarkRSService.getQueryMap(BenchmarkDTO.class, filter, new PropertyBagDTO(), true);
+    }
+
+    @Benchmark
+    public BenchmarkDTO getQueryMapNoSetter() throws Exception {
+        return benchmarkRSService.getQueryMap(BenchmarkDTO.class, filter, new PropertyBagDTO(), false);
+    }
+
+    private static String getFilterJson(String filterShape) {
+        switch (filterShape) {
+            case "KNOWN":
+                return "{\"name\":\"name 1\",\"code\":\"CODE1\",\"description\":\"description\",\"sequence\":\"1\",\"parentId\":\"10\","
+                        + "\"active\":\"true\",\"status\":\"ACTIVE\",\"createId\":\"benchmark\",\"lastModId\":\"benchmark\",\"benchmarkId\":\"1\"}";
+            case "MIXED":
+                return "{\"name\":\"name 1\",\"code\":\"CODE1\",\"description\":\"description\",\"sequence\":\"1\",\"parentId\":\"10\","
+                        + "\"text\":\"global search\",\"searchMode\":\"contains\",\"caseSensitive\":\"false\",\"scope\":\"all\",\"unmapped\":\"x\"}";
+            case "PAGED":
+                return "{\"name\":\"name 1\",\"code\":\"CODE1\",\"active\":\"true\",\"status\":\"ACTIVE\",\"parentId\":\"10\","
+                        + "\"" + CoreConstants.LAZY + "\":\"true\",\"" + CoreConstants.LAZY_PAGE_SIZE + "\":\"25\","
+                        + "\"" + CoreConstants.LAZY_ROW_OFFSET + "\":\"500\",\"" + CoreConstants.SORT_FIELD + "\":\"name\","
+                        + "\"" + CoreConstants.SORT_ORDER + "\":\"ASC\"}";
+            default:
+                throw new IllegalArgumentException("Unknown filterShape: " + filterShape);
+        }
+    }
+}
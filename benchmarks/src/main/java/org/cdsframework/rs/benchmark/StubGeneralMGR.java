@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.ejb.local.GeneralMGRInterface;
+
+/**
+ * In-process stand in for the MGR tier. Returns canned results without any EJB or database work so the benchmarks
+ * measure only the RS tier.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class StubGeneralMGR implements InvocationHandler {
+
+    private final List<BaseDTO> queryListResult;
+    private final long rowCount;
+
+    private StubGeneralMGR(List<BaseDTO> queryListResult, long rowCount) {
+        this.queryListResult = queryListResult;
+        this.rowCount = rowCount;
+    }
+
+    public static GeneralMGRInterface newInstance(List<? extends BaseDTO> queryListResult, long rowCount) {
+        return (GeneralMGRInterface) Proxy.newProxyInstance(
+                GeneralMGRInterface.class.getClassLoader(),
+                new Class[]{GeneralMGRInterface.class},
+                new StubGeneralMGR(Collections.unmodifiableList(new ArrayList<BaseDTO>(queryListResult)), rowCount));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String methodName = method.getName();
+        switch (methodName) {
+            case "findByPrimaryKey":
+            case "save":
+            case "customSave":
+                // Echo the incoming DTO back
+                return args[0];
+            case "findByQueryList":
+                return new ArrayList<BaseDTO>(queryListResult);
+            case "findObjectByQuery":
+                return rowCount;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return StubGeneralMGR.class.getSimpleName();
+            default:
+                throw new UnsupportedOperationException(methodName + " is not supported by " + StubGeneralMGR.class.getSimpleName());
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.Response;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.enumeration.Operation;
+import org.cdsframework.rs.base.BaseRSService;
+import org.cdsframework.rs.base.EntityTagged;
+import org.cdsframework.rs.core.support.CoreSupportConstants;
+import org.cdsframework.rs.support.CoreRsConstants;
+
+/**
+ * Asynchronous variant of GeneralRSService served under {root}/async.
+ *
+ * The request thread is released as soon as the request is suspended, the MGR call runs on the async executor
+ * (RsExecutors.getAsyncExecutor) and resumes the response. Saturation is answered with 503 and requests that
+ * outlive the async timeout with 504.
+ *
+ * @author HLN Consulting, LLC
+ */
+@Path(CoreRsConstants.GENERAL_RS_ROOT + "/" + CoreSupportConstants.ASYNC_PATH)
+public class AsyncGeneralRSService extends BaseRSService {
+
+    public AsyncGeneralRSService() {
+        super(AsyncGeneralRSService.class);
+    }
+
+    public AsyncGeneralRSService(Class logClass) {
+        super(logClass);
+    }
+
+    @POST
+    @Path("{resource}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void create(@Suspended AsyncResponse asyncResponse, final BaseDTO dto, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) final String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) final String sessionId) {
+        final String METHODNAME = "create ";
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "dto=", dto, " property=", property, " sessionId=", sessionId);
+        }
+        submitAsync(asyncResponse, resource, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return saveMain(dto, Operation.ADD, property, sessionId);
+            }
+        });
+    }
+
+    @GET
+    @Path("{resource}/newInstance")
+    @Produces(MediaType.APPLICATION_JSON)
+    public void newInstance(@Suspended AsyncResponse asyncResponse, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) final String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) final String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) final String sessionId) {
+        submitAsync(asyncResponse, resource, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return newInstanceMain(resource, property, sessionId);
+            }
+        });
+    }
+
+    @PUT
+    @Path("{resource}/{primaryKey:.+}")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void update(@Suspended AsyncResponse asyncResponse, final BaseDTO dto, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) final String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) final String sessionId) {
+        final String METHODNAME = "update ";
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "dto=", dto, " property=", property, " sessionId=", sessionId);
+        }
+        // MTS Handles the case to refresh the record - note that primary keys must be in the entity itself
+        submitAsync(asyncResponse, resource, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return saveMain(dto, Operation.UPDATE, property, sessionId);
+            }
+        });
+    }
+
+    @DELETE
+    @Path("{resource}/{primaryKey:.+}")
+    public void delete(@Suspended AsyncResponse asyncResponse, @PathParam(CoreRsConstants.PATHPARMPRIMARYKEY) final List<PathSegment> primaryKeys,
+            @PathParam(CoreRsConstants.QUERYPARMRESOURCE) final String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) final String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) final String sessionId) {
+        submitAsync(asyncResponse, resource, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return deleteMain(getPrimaryKeysFromPath(resource, primaryKeys), resource, property, sessionId);
+            }
+        });
+    }
+
+    @GET
+    @Path("{resource}/{primaryKey:.+}")
+    @Produces(MediaType.APPLICATION_JSON)
+    @EntityTagged
+    public void findByPrimaryKey(@Suspended AsyncResponse asyncResponse, @PathParam(CoreRsConstants.PATHPARMPRIMARYKEY) final List<PathSegment> primaryKeys,
+            @PathParam(CoreRsConstants.QUERYPARMRESOURCE) final String resource, @QueryParam(CoreRsConstants.QUERYPARMEXPAND) final List<String> expand,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) final String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) final String sessionId) {
+        submitAsync(asyncResponse, resource, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return Response.ok(findByPrimaryKeyMain(getPrimaryKeysFromPath(resource, primaryKeys), resource, expand, property, sessionId)).build();
+            }
+        });
+    }
+
+    @GET
+    @Path("{resource}")
+    @Produces({MediaType.APPLICATION_JSON})
+    public void findByQueryList(@Suspended AsyncResponse asyncResponse, @QueryParam(CoreRsConstants.QUERYPARMFILTER) final String filter,
+            @PathParam(CoreRsConstants.QUERYPARMRESOURCE) final String resource, @QueryParam(CoreRsConstants.QUERYPARMEXPAND) final List<String> expand,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) final String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) final String sessionId) {
+        submitAsync(asyncResponse, resource, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return findByQueryListMain(filter, resource, expand, property, sessionId);
+            }
+        });
+    }
+
+    @GET
+    @Path("{resource}/object")
+    @Produces({MediaType.APPLICATION_JSON})
+    public void findObjectByQueryList(@Suspended AsyncResponse asyncResponse, @QueryParam(CoreRsConstants.QUERYPARMFILTER) final String filter,
+            @PathParam(CoreRsConstants.QUERYPARMRESOURCE) final String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) final String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) final String sessionId) {
+        submitAsync(asyncResponse, resource, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return findByObjectQueryListMain(filter, resource, property, sessionId);
+            }
+        });
+    }
+
+    @GET
+    @Path("{resource}/export")
+    @Produces({MediaType.APPLICATION_JSON, CoreSupportConstants.APPLICATION_ZIP})
+    public void exportData(@Suspended AsyncResponse asyncResponse, @QueryParam(CoreRsConstants.QUERYPARMFILTER) final String filter,
+            @PathParam(CoreRsConstants.QUERYPARMRESOURCE) final String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) final String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) final String sessionId) {
+        submitAsync(asyncResponse, resource, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return exportDataMain(filter, resource, property, sessionId);
+            }
+        });
+    }
+
+    @GET
+    @Path("{resource}/report")
+    @Produces({MediaType.APPLICATION_OCTET_STREAM})
+    public void getReport(@Suspended AsyncResponse asyncResponse, @QueryParam(CoreRsConstants.QUERYPARMFILTER) final String filter,
+            @PathParam(CoreRsConstants.QUERYPARMRESOURCE) final String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) final String property, @QueryParam(CoreRsConstants.QUERYPARAMREPORTPARAMS) final String reportParameters,
+            @QueryParam(CoreRsConstants.QUERYPARMSESSION) final String sessionId) {
+        submitAsync(asyncResponse, resource, new Callable<Response>() {
+            @Override
+            public Response call() throws Exception {
+                return getReportMain(filter, resource, property, reportParameters, sessionId);
+            }
+        });
+    }
+}
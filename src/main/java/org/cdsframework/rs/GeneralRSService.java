@@ -25,6 +25,8 @@
  */
 package org.cdsframework.rs;
 
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
@@ -47,7 +49,11 @@ import org.cdsframework.exceptions.MtsException;
 import org.cdsframework.exceptions.NotFoundException;
 import org.cdsframework.exceptions.ValidationException;
 import org.cdsframework.rs.base.BaseRSService;
+import org.cdsframework.rs.base.EntityTagged;
+import org.cdsframework.rs.core.support.CoreSupportConstants;
 import org.cdsframework.rs.support.CoreRsConstants;
+import org.glassfish.jersey.media.multipart.FormDataContentDisposition;
+import org.glassfish.jersey.media.multipart.FormDataParam;
 
 /**
  *
@@ -78,6 +84,20 @@ public class GeneralRSService extends BaseRSService {
         return saveMain(dto, Operation.ADD, property, sessionId);
     }
 
+    @POST
+    @Path("{resource}/bulk")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response bulk(InputStream payload, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId)
+            throws MtsException, NotFoundException, ValidationException {
+        final String METHODNAME = "bulk ";
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "resource=", resource, " property=", property, " sessionId=", sessionId);
+        }
+        return bulkMain(payload, resource, property, sessionId);
+    }
+
     @GET
     @Path("{resource}/newInstance")
     @Produces(MediaType.APPLICATION_JSON)
@@ -91,6 +111,44 @@ public class GeneralRSService extends BaseRSService {
         return newInstanceMain(resource, property, sessionId);
     }
 
+    @GET
+    @Path("{resource}/batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response batch(@QueryParam(CoreSupportConstants.BATCH_KEY) List<String> keys, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMEXPAND) List<String> expand, @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        return findByPrimaryKeysMain(keys, resource, expand, property, sessionId);
+    }
+
+    @POST
+    @Path("{resource}/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response postBatch(List<Object> keys, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMEXPAND) List<String> expand, @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        final String METHODNAME = "postBatch ";
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "keys=", keys, " resource=", resource, " sessionId=", sessionId);
+        }
+        // Composite keys may be posted as an array of their segments
+        List<String> batchKeys = new ArrayList<>();
+        if (keys != null) {
+            for (Object key : keys) {
+                if (key instanceof List) {
+                    StringBuilder segments = new StringBuilder();
+                    for (Object segment : (List<?>) key) {
+                        segments.append(segments.length() > 0 ? "/" : "").append(segment);
+                    }
+                    batchKeys.add(segments.toString());
+                } else if (key != null) {
+                    batchKeys.add(key.toString());
+                }
+            }
+        }
+        return findByPrimaryKeysMain(batchKeys, resource, expand, property, sessionId);
+    }
+
     @PUT
     @Path("{resource}/{primaryKey:.+}")
     @Consumes(MediaType.APPLICATION_JSON)
@@ -116,13 +174,13 @@ public class GeneralRSService extends BaseRSService {
             logger.debug(METHODNAME, "primaryKey=", primaryKeys, " resource=", resource, " property=", property, " sessionId=", sessionId);
         }
 
-        // Get the DTO and delete it, its on your back end to deal with all the children (business or database layer)
-        return saveMain(findByPrimaryKeyMain(getPrimaryKeysFromPath(resource, primaryKeys), resource, null, null, sessionId), Operation.DELETE, property, sessionId);
+        return deleteMain(getPrimaryKeysFromPath(resource, primaryKeys), resource, property, sessionId);
     }
 
     @GET
     @Path("{resource}/{primaryKey:.+}")
     @Produces(MediaType.APPLICATION_JSON)
+    @EntityTagged
     public BaseDTO findByPrimaryKey(@PathParam(CoreRsConstants.PATHPARMPRIMARYKEY) List<PathSegment> primaryKeys, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
             @QueryParam(CoreRsConstants.QUERYPARMEXPAND) List<String> expand, @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId)
             throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException {
@@ -161,9 +219,23 @@ public class GeneralRSService extends BaseRSService {
         return importDataMain(resource, property, sessionId);
     }
 
+    @POST
+    @Path("{resource}/import")
+    @Produces({MediaType.APPLICATION_JSON})
+    @Consumes(MediaType.MULTIPART_FORM_DATA)
+    public Response importMultipartData(
+            @FormDataParam(CoreSupportConstants.IMPORT_PAYLOAD) InputStream fileInputStream,
+            @FormDataParam(CoreSupportConstants.IMPORT_PAYLOAD) FormDataContentDisposition contentDisposition,
+            @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) String property,
+            @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        return importMultipartDataMain(fileInputStream, contentDisposition != null ? contentDisposition.getFileName() : null, resource, property, sessionId);
+    }
+
     @GET
     @Path("{resource}/export")
-    @Produces({MediaType.APPLICATION_JSON})
+    @Produces({MediaType.APPLICATION_JSON, CoreSupportConstants.APPLICATION_ZIP})
     public Response exportData(@QueryParam(CoreRsConstants.QUERYPARMFILTER) String filter, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
             @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId)
             throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
@@ -180,6 +252,34 @@ public class GeneralRSService extends BaseRSService {
         return getReportMain(filter, resource, property, reportParameters, sessionId);
     }
 
+    @POST
+    @Path("{resource}/report/jobs")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response submitReportJob(@QueryParam(CoreRsConstants.QUERYPARMFILTER) String filter, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) String property, @QueryParam(CoreRsConstants.QUERYPARAMREPORTPARAMS) String reportParameters,
+            @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        return submitReportJobMain(filter, resource, property, reportParameters, sessionId);
+    }
+
+    @GET
+    @Path("{resource}/report/jobs/{jobId}")
+    @Produces({MediaType.APPLICATION_JSON})
+    public Response getReportJob(@PathParam("jobId") String jobId, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId)
+            throws NotFoundException {
+        return getReportJobMain(resource, jobId, sessionId);
+    }
+
+    @GET
+    @Path("{resource}/report/jobs/{jobId}/download")
+    @Produces({MediaType.APPLICATION_OCTET_STREAM})
+    public Response downloadReportJob(@PathParam("jobId") String jobId, @PathParam(CoreRsConstants.QUERYPARMRESOURCE) String resource,
+            @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId)
+            throws NotFoundException, MtsException {
+        return downloadReportJobMain(resource, jobId, sessionId);
+    }
+
     @GET
     @Produces(MediaType.TEXT_PLAIN)
     @Path("ping")
@@ -31,8 +31,22 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.CacheControl;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 import org.cdsframework.rs.core.support.CatResourceConfig;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
 import org.cdsframework.rs.util.ConfigServiceUtils;
+import org.cdsframework.rs.support.CoreConfiguration;
+import org.cdsframework.rs.util.RenderedConfig;
 import org.cdsframework.util.LogUtils;
 
 /**
@@ -81,7 +95,9 @@ public abstract class BaseConfigService {
     public String getBaseCrudUri() {
         final String METHODNAME = "getBaseCrudUri ";
         String pluginBaseUri = BaseConfigService.getBaseCrudUriStatic(pluginConfigClass, pluginRoot);
-        logger.info(METHODNAME, "pluginBaseUri=", pluginBaseUri);
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "pluginBaseUri=", pluginBaseUri);
+        }
         return pluginBaseUri;
     }
 
@@ -131,16 +147,92 @@ public abstract class BaseConfigService {
     public CatResourceConfig configMain(String resource) {
         final String METHODNAME = "configMain ";
         Map<String, CatResourceConfig> configurationMap = getPluginConfig().getConfigurationMap();
-        logger.info(METHODNAME, "configurationMap=", configurationMap);
         CatResourceConfig config = configurationMap.get(resource);
-        logger.info(METHODNAME, "config=", config);
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "resource=", resource, " config=", config);
+        }
         return config;
     }
 
+    /**
+     * Get the config of the resource as rendered at registration, served by GET {resource}/rendered.
+     *
+     * @param resource
+     * @param request
+     * @param httpHeaders
+     * @return
+     */
+    @GET
+    @Path("{resource}/rendered")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response renderedConfig(@PathParam("resource") String resource, @Context Request request, @Context HttpHeaders httpHeaders) {
+        return configResponseMain(resource, request, httpHeaders);
+    }
+
+    /**
+     * Get the config of the resource as rendered at registration. The response carries a strong ETag and a public
+     * Cache-Control max-age (configMaxAge), a matching If-None-Match is answered with 304. Resources whose config could
+     * not be rendered are serialized per request as configMain.
+     *
+     * With gzipSupport the JSON is served and the registered GZipEncoder compresses it, otherwise the gzip encoding
+     * rendered at registration is served as-is when the client accepts it.
+     *
+     * @param resource
+     * @param request
+     * @param httpHeaders
+     * @return
+     */
+    public Response configResponseMain(String resource, Request request, HttpHeaders httpHeaders) {
+        final String METHODNAME = "configResponseMain ";
+        RenderedConfig renderedConfig = getPluginConfig().getRenderedConfig(resource);
+        if (renderedConfig == null) {
+            CatResourceConfig config = configMain(resource);
+            return config != null ? Response.ok(config, MediaType.APPLICATION_JSON_TYPE).build() : Response.noContent().build();
+        }
+        // Gzipping here as well as in the GZipEncoder would compress the config twice
+        boolean gzipped = !CoreConfiguration.isGzipSupport() && isGzipAccepted(httpHeaders);
+        EntityTag eTag = new EntityTag(renderedConfig.getETag(gzipped));
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(CoreSupportConfiguration.getConfigMaxAge());
+        Response.ResponseBuilder responseBuilder = request != null ? request.evaluatePreconditions(eTag) : null;
+        if (responseBuilder == null) {
+            responseBuilder = Response.ok(gzipped ? renderedConfig.getGzip() : renderedConfig.getJson(), MediaType.APPLICATION_JSON_TYPE);
+            if (gzipped) {
+                responseBuilder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "resource=", resource, " gzipped=", gzipped, " eTag=", eTag);
+        }
+        responseBuilder.tag(eTag).cacheControl(cacheControl);
+        if (!CoreConfiguration.isGzipSupport()) {
+            responseBuilder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        return responseBuilder.build();
+    }
+
+    private static boolean isGzipAccepted(HttpHeaders httpHeaders) {
+        List<String> acceptEncodings = httpHeaders != null ? httpHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING) : null;
+        if (acceptEncodings != null) {
+            for (String acceptEncoding : acceptEncodings) {
+                for (String coding : acceptEncoding.split(",")) {
+                    String[] parameters = coding.split(";");
+                    if ("gzip".equalsIgnoreCase(parameters[0].trim())) {
+                        // gzip;q=0 refuses the encoding
+                        return parameters.length < 2 || !parameters[1].trim().matches("(?i)q\\s*=\\s*0(\\.0*)?");
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     public List<String> getConfigsMain() {
         final String METHODNAME = "getConfigsMain ";
         Map<String, CatResourceConfig> configurationMap = getPluginConfig().getConfigurationMap();
-        logger.info(METHODNAME, "configurationMap=", configurationMap);
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "resources=", configurationMap.keySet());
+        }
         return new ArrayList<>(configurationMap.keySet());
     }
 
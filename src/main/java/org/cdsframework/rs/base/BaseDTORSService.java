@@ -130,13 +130,13 @@ public abstract class BaseDTORSService<Dto extends BaseDTO> extends BaseRSServic
             logger.debug(METHODNAME, "primaryKey=", primaryKey, " property=", property, " sessionId=", sessionId);
         }
         
-        // Get the DTO and delete it, its on your back end to deal with all the children (business or database layer)
-        return saveMain(findByPrimaryKeyMain(primaryKey, dtoClass, null, property, sessionId), Operation.DELETE, property, sessionId);
+        return deleteMain(primaryKey, dtoClass, property, sessionId);
     }    
     
     @GET
     @Path("{primaryKey}")
     @Produces(MediaType.APPLICATION_JSON)
+    @EntityTagged
     public Dto findByPrimaryKey(@PathParam(CoreRsConstants.PATHPARMPRIMARYKEY) String primaryKey, @QueryParam(CoreRsConstants.QUERYPARMEXPAND) List<String> expand, 
             @QueryParam(CoreRsConstants.QUERYPARMPROPERTY) String property, @QueryParam(CoreRsConstants.QUERYPARMSESSION) String sessionId) 
             throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException {
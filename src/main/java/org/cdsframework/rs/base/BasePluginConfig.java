@@ -26,11 +26,13 @@
  */
 package org.cdsframework.rs.base;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import org.cdsframework.base.BaseDTO;
 import org.cdsframework.rs.core.support.CatResourceConfig;
 import org.cdsframework.rs.util.CatResourceConfigUtils;
+import org.cdsframework.rs.util.RenderedConfig;
 import org.cdsframework.util.LogUtils;
 
 /**
@@ -40,6 +42,7 @@ import org.cdsframework.util.LogUtils;
 public abstract class BasePluginConfig {
 
     private final Map<String, CatResourceConfig> configurationMap = new HashMap<>();
+    private final Map<String, RenderedConfig> renderedConfigMap = new HashMap<>();
     protected final LogUtils logger;
     private final String baseCrudUri;
 
@@ -53,8 +56,14 @@ public abstract class BasePluginConfig {
         config.setCrudRsUri(baseCrudUri + "/" + config.getResourceName());
         config.initialize();
         CatResourceConfigUtils.postProcessCatResourceConfig(config);
+        CatResourceConfigUtils.registerCatResourceConfig(config);
         logger.info(METHODNAME, "registering resourceName: ", config.getResourceName(), " - ", config);
         configurationMap.put(config.getResourceName(), config);
+        try {
+            renderedConfigMap.put(config.getResourceName(), RenderedConfig.render(config));
+        } catch (IOException e) {
+            logger.error(METHODNAME, "An ", e.getClass().getSimpleName(), " has occurred rendering ", config.getResourceName(), "; Message: ", e.getMessage(), e);
+        }
     }
 
     public String getBaseCrudUri() {
@@ -70,4 +79,14 @@ public abstract class BasePluginConfig {
         return configurationMap;
     }
 
+    /**
+     * Get the config of the resource as rendered at registration.
+     *
+     * @param resourceName
+     * @return the rendered config or null if the resource is not registered or could not be rendered
+     */
+    public final RenderedConfig getRenderedConfig(String resourceName) {
+        return renderedConfigMap.get(resourceName);
+    }
+
 }
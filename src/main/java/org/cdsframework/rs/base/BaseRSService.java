@@ -1,33 +1,63 @@
 package org.cdsframework.rs.base;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 import javax.annotation.PostConstruct;
 import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.ClientErrorException;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.GenericEntity;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.PathSegment;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Providers;
 
+import org.apache.commons.beanutils.PropertyUtils;
 import org.cdsframework.base.BaseDTO;
 import org.cdsframework.dto.PropertyBagDTO;
 import org.cdsframework.dto.SessionDTO;
@@ -42,20 +72,37 @@ import org.cdsframework.exceptions.NotFoundException;
 import org.cdsframework.exceptions.ValidationException;
 import org.cdsframework.rs.support.CoreConfiguration;
 import org.cdsframework.rs.support.CoreRsConstants;
-import org.cdsframework.client.MtsMGRClient;
 import org.cdsframework.ejb.local.SecurityMGRInterface;
 import org.cdsframework.enumeration.Environment;
-import org.cdsframework.enumeration.FieldType;
 import org.cdsframework.enumeration.LogLevel;
+import org.cdsframework.rs.core.support.CatResourceConfig;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+import org.cdsframework.rs.core.support.CoreSupportConstants;
+import org.cdsframework.rs.util.CatResourceConfigUtils;
+import org.cdsframework.rs.util.DtoCache;
+import org.cdsframework.rs.util.ExpandPlanner;
+import org.cdsframework.rs.util.ImportBatchReader;
+import org.cdsframework.rs.util.JsonStreamingUtils;
+import org.cdsframework.rs.util.KeysetCursorUtils;
+import org.cdsframework.rs.util.MgrClientCache;
 import org.cdsframework.rs.util.PropertyBagUtils;
+import org.cdsframework.rs.util.PrototypeCache;
+import org.cdsframework.rs.util.ReportCache;
+import org.cdsframework.rs.util.ReportJobManager;
+import org.cdsframework.rs.util.QueryMapBinder;
+import org.cdsframework.rs.util.RowCountCache;
+import org.cdsframework.rs.util.RsExecutors;
+import org.cdsframework.rs.util.RsStreamUtils;
+import org.cdsframework.rs.util.SingleFlight;
+import org.cdsframework.rs.util.SparseFieldsetUtils;
 import org.cdsframework.rs.utils.CommonRsUtils;
 import org.cdsframework.util.ClassUtils;
-import org.cdsframework.util.DTOProperty;
 import org.cdsframework.util.DTOUtils;
 import org.cdsframework.util.LogUtils;
 import org.cdsframework.util.ObjectUtils;
 import org.cdsframework.util.StringUtils;
 import org.cdsframework.util.support.CoreConstants;
+import org.glassfish.jersey.server.CloseableService;
 
 /*
  * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
@@ -89,10 +136,21 @@ import org.cdsframework.util.support.CoreConstants;
 public abstract class BaseRSService {
 
     protected LogUtils logger;
+    private static final String LAST_MOD_DATETIME = "lastModDatetime";
     @Context
     private UriInfo uriContext;
     @Context
     private ServletContext servletContext;
+    @Context
+    private Providers providers;
+    @Context
+    private Request request;
+    @Context
+    private HttpHeaders httpHeaders;
+    @Context
+    private HttpServletRequest httpServletRequest;
+    @Context
+    private CloseableService closeableService;
     private static Map<String, Class<? extends BaseDTO>> dtoClassMap;
     private static boolean configured = false;
 
@@ -108,11 +166,11 @@ public abstract class BaseRSService {
     }
 
     public GeneralMGRInterface getGeneralMGR() throws MtsException {
-        return MtsMGRClient.getGeneralMGR(CoreConfiguration.isMtsUseRemote());
+        return MgrClientCache.getGeneralMGR(CoreConfiguration.isMtsUseRemote());
     }
 
     public SecurityMGRInterface getSecurityMGR() throws MtsException {
-        return MtsMGRClient.getSecurityMGR(CoreConfiguration.isMtsUseRemote());
+        return MgrClientCache.getSecurityMGR(CoreConfiguration.isMtsUseRemote());
     }
 
     @PostConstruct
@@ -161,21 +219,267 @@ public abstract class BaseRSService {
     public <T extends BaseDTO> T findByPrimaryKeyMain(Object primaryKey, Class<T> classType, List<String> expand, String property, String sessionId) throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException {
         final String METHODNAME = "findByPrimaryKeyMain ";
 //        logger.debug(METHODNAME, "primaryKey=", primaryKey, " sessionId=", sessionId);
+        return findByPrimaryKey(primaryKey, classType, expand, property, sessionId, getGeneralMGR(), getSessionDTO(sessionId));
+    }
+
+    /**
+     * Get the resource by primary key with the MGR and session already resolved, so it can run off the request thread.
+     *
+     * @param <T>
+     * @param primaryKey
+     * @param classType
+     * @param expand
+     * @param property
+     * @param sessionId
+     * @param generalMGR
+     * @param sessionDTO
+     * @return
+     */
+    private <T extends BaseDTO> T findByPrimaryKey(Object primaryKey, Class<T> classType, List<String> expand, String property, String sessionId,
+            final GeneralMGRInterface generalMGR, final SessionDTO sessionDTO)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException {
+        final String METHODNAME = "findByPrimaryKey ";
 
         // Get the Primary Key DTO
-        BaseDTO dto = getPrimaryKeyDTO(primaryKey, classType);
+        final BaseDTO dto = getPrimaryKeyDTO(primaryKey, classType);
 
         // Create the Property Bag
-        PropertyBagDTO propertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
+        final PropertyBagDTO propertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
         propertyBagDTO.setChildClassDTOs(getChildClassDTOs(expand));
 
-        return (T) getGeneralMGR().findByPrimaryKey(dto, getSessionDTO(sessionId), propertyBagDTO);
+        Callable<T> findByPrimaryKey = new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                return (T) generalMGR.findByPrimaryKey(dto, sessionDTO, propertyBagDTO);
+            }
+        };
+        String singleFlightKey = null;
+        if (SingleFlight.isEnabled()) {
+            singleFlightKey = SingleFlight.getKey("findByPrimaryKey", classType.getName(), dto.getPrimaryKey(), null,
+                    propertyBagDTO.getPropertyMap(), expand, getAuthorizationScope(sessionId));
+        }
+
+        if (!DtoCache.isEnabled(classType)) {
+            return singleFlight(singleFlightKey, findByPrimaryKey);
+        }
+
+        // Read through the RS tier cache, a write racing the MGR call bumps the generation and the result is not cached.
+        // Only the caller issuing the MGR call populates the cache, with the generation read before that call, so a
+        // coalesced caller arriving after a write can not cache the pre-write result under the new generation.
+        final Class<T> finalClassType = classType;
+        final List<String> finalExpand = expand;
+        final String key = DtoCache.getKey(dto.getPrimaryKey(), expand, property, getDtoCacheScope(classType, sessionId));
+        T result = DtoCache.get(classType, key);
+        if (result == null) {
+            final Callable<T> uncachedFindByPrimaryKey = findByPrimaryKey;
+            result = singleFlight(singleFlightKey, new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    long generation = DtoCache.getGeneration(finalClassType, finalExpand);
+                    T result = uncachedFindByPrimaryKey.call();
+                    DtoCache.put(finalClassType, key, dto.getPrimaryKey(), finalExpand, result, generation);
+                    return result;
+                }
+            });
+        } else if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "cache hit, classType=", classType.getSimpleName());
+        }
+        return result;
+    }
+
+    private <T> T singleFlight(String key, Callable<T> callable)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException {
+        try {
+            return SingleFlight.execute(key, callable);
+        } catch (ConstraintViolationException e) {
+            // findByPrimaryKey does not declare it
+            throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Get the authorization scope identical concurrent reads may share one MGR call within (SingleFlight). Reads are
+     * made with the caller's authorization, by default only requests of the same session are coalesced. Override to
+     * coalesce more widely, i.e; across sessions of the same role.
+     *
+     * @param sessionId
+     * @return
+     */
+    protected String getAuthorizationScope(String sessionId) {
+        return sessionId;
+    }
+
+    /**
+     * Get the scope cached findByPrimaryKey results are shared within. DTOs are read with the caller's
+     * authorization, by default they are only reused within the same session unless the resource's CatResourceConfig
+     * is marked dtoCacheShared.
+     *
+     * @param dtoClass
+     * @param sessionId
+     * @return
+     */
+    protected String getDtoCacheScope(Class<? extends BaseDTO> dtoClass, String sessionId) {
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(dtoClass);
+        if (catResourceConfig != null && catResourceConfig.isDtoCacheShared()) {
+            return "";
+        }
+        return sessionId;
     }
 
     public BaseDTO findByPrimaryKeyMain(Object primaryKey, String resource, List<String> expand, String property, String sessionId) throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException {
         return findByPrimaryKeyMain(primaryKey, getClassForResource(resource), expand, property, sessionId);
     }
 
+    /**
+     * Get many resources by primary key in one request.
+     *
+     * Keys are given as their path segments joined with '/', as they would appear in the findByPrimaryKey path.
+     * Resources with a CatResourceConfig batchQueryClass are fetched with a single findByQueryList call, the keys
+     * are passed in the query map (BATCH_PRIMARY_KEYS). Otherwise the keys are looked up with up to batchParallelism
+     * concurrent findByPrimaryKey calls.
+     *
+     * @param keys
+     * @param resource
+     * @param expand
+     * @param property
+     * @param sessionId
+     * @return a map of each key to its BatchResult, 404 for keys that were not found
+     */
+    public Response findByPrimaryKeysMain(List<String> keys, String resource, List<String> expand, String property, String sessionId)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        final String METHODNAME = "findByPrimaryKeysMain ";
+        long start = System.nanoTime();
+        if (keys == null || keys.isEmpty()) {
+            throw new ValidationException("The batch request requires at least one key");
+        }
+        int batchMaxKeys = CoreSupportConfiguration.getBatchMaxKeys();
+        if (keys.size() > batchMaxKeys) {
+            throw new ValidationException("The batch request is limited to " + batchMaxKeys + " keys");
+        }
+        Class<? extends BaseDTO> classType = getClassForResource(resource);
+        Map<String, Object> primaryKeys = new LinkedHashMap<>();
+        for (String key : keys) {
+            if (!StringUtils.isEmpty(key)) {
+                primaryKeys.put(key, getPrimaryKeys(resource, Arrays.asList(key.split("/"))));
+            }
+        }
+        // Resolve the MGR and session on the request thread, every lookup shares them
+        GeneralMGRInterface generalMGR = getGeneralMGR();
+        SessionDTO sessionDTO = getSessionDTO(sessionId);
+
+        Map<String, BatchResult> results;
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(classType);
+        if (catResourceConfig != null && !StringUtils.isEmpty(catResourceConfig.getBatchQueryClass())) {
+            results = findByPrimaryKeysQuery(primaryKeys, classType, catResourceConfig.getBatchQueryClass(), expand, property, generalMGR, sessionDTO);
+        } else {
+            results = findByPrimaryKeysParallel(primaryKeys, classType, expand, property, sessionId, generalMGR, sessionDTO);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "resource=", resource, " keys=", primaryKeys.size(), " duration=", (System.nanoTime() - start) / 1000000, "ms");
+        }
+        GenericEntity<Map<String, BatchResult>> genericEntity = new GenericEntity<Map<String, BatchResult>>(results) {
+        };
+        return Response.ok(genericEntity).build();
+    }
+
+    private <T extends BaseDTO> Map<String, BatchResult> findByPrimaryKeysQuery(Map<String, Object> primaryKeys, Class<T> classType, String batchQueryClass,
+            List<String> expand, String property, GeneralMGRInterface generalMGR, SessionDTO sessionDTO)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        // Normalized primary key to the requested keys
+        Map<String, List<String>> requestedKeys = new HashMap<>();
+        List<Object> primaryKeyValues = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : primaryKeys.entrySet()) {
+            Object primaryKey = getPrimaryKeyDTO(entry.getValue(), classType).getPrimaryKey();
+            String normalizedKey = DtoCache.normalizeKey(primaryKey);
+            List<String> keys = requestedKeys.get(normalizedKey);
+            if (keys == null) {
+                keys = new ArrayList<>();
+                requestedKeys.put(normalizedKey, keys);
+                primaryKeyValues.add(primaryKey);
+            }
+            keys.add(entry.getKey());
+        }
+
+        PropertyBagDTO propertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
+        propertyBagDTO.setChildClassDTOs(getChildClassDTOs(expand));
+        propertyBagDTO.setQueryClass(batchQueryClass);
+        T queryDTO = getNewDTO(classType);
+        queryDTO.getQueryMap().put(CoreSupportConstants.BATCH_PRIMARY_KEYS, primaryKeyValues);
+        List<T> resultDTOs = generalMGR.findByQueryList(queryDTO, sessionDTO, propertyBagDTO);
+
+        Map<String, BatchResult> results = new LinkedHashMap<>();
+        for (String key : primaryKeys.keySet()) {
+            results.put(key, new BatchResult(Status.NOT_FOUND.getStatusCode(), "Not found", null));
+        }
+        if (resultDTOs != null) {
+            for (T resultDTO : resultDTOs) {
+                List<String> keys = requestedKeys.get(DtoCache.normalizeKey(resultDTO.getPrimaryKey()));
+                if (keys != null) {
+                    for (String key : keys) {
+                        results.put(key, new BatchResult(Status.OK.getStatusCode(), null, resultDTO));
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private Map<String, BatchResult> findByPrimaryKeysParallel(Map<String, Object> primaryKeys, final Class<? extends BaseDTO> classType,
+            final List<String> expand, final String property, final String sessionId, final GeneralMGRInterface generalMGR, final SessionDTO sessionDTO)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        int batchParallelism = Math.max(1, CoreSupportConfiguration.getBatchParallelism());
+        List<Map.Entry<String, Object>> entries = new ArrayList<>(primaryKeys.entrySet());
+        Map<String, BatchResult> results = new LinkedHashMap<>();
+        // Lookups are issued in windows of batchParallelism so one request can not monopolize the query executor
+        for (int offset = 0; offset < entries.size(); offset += batchParallelism) {
+            List<Map.Entry<String, Object>> window = entries.subList(offset, Math.min(offset + batchParallelism, entries.size()));
+            List<Future<BatchResult>> futures = new ArrayList<>(window.size());
+            try {
+                for (Map.Entry<String, Object> entry : window) {
+                    final Object primaryKey = entry.getValue();
+                    futures.add(RsExecutors.submit(new Callable<BatchResult>() {
+                        @Override
+                        public BatchResult call() throws Exception {
+                            try {
+                                return new BatchResult(Status.OK.getStatusCode(), null,
+                                        findByPrimaryKey(primaryKey, classType, expand, property, sessionId, generalMGR, sessionDTO));
+                            } catch (NotFoundException e) {
+                                return new BatchResult(Status.NOT_FOUND.getStatusCode(), e.getMessage(), null);
+                            }
+                        }
+                    }));
+                }
+                for (int i = 0; i < window.size(); i++) {
+                    results.put(window.get(i).getKey(), RsExecutors.getResult(futures.get(i)));
+                }
+            } finally {
+                RsExecutors.cancel(futures.toArray(new Future<?>[futures.size()]));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Get the version data of the DTO, the lastModDatetime by default. Used by EntityTagFilter to tag the DTO without
+     * serializing it.
+     *
+     * @param dto
+     * @return the version or null if the DTO has none
+     */
+    protected Object getDTOVersion(BaseDTO dto) {
+        final String METHODNAME = "getDTOVersion ";
+        if (dto == null || !PropertyUtils.isReadable(dto, LAST_MOD_DATETIME)) {
+            return null;
+        }
+        try {
+            Object version = PropertyUtils.getProperty(dto, LAST_MOD_DATETIME);
+            return version instanceof Date ? ((Date) version).getTime() : version;
+        } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            logger.warn(METHODNAME, "An ", e.getClass().getSimpleName(), " has occurred; Message: ", e.getMessage());
+            return null;
+        }
+    }
+
     public <T extends BaseDTO> Response findByQueryListMain(String filter, Class<T> classType, List<String> expand, String property, String sessionId) throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
         final String METHODNAME = "findByQueryListMain ";
         List<T> resultDTOs = new ArrayList<T>();
@@ -189,53 +493,408 @@ public abstract class BaseRSService {
         T queryDTO = getQueryMap(classType, filter, propertyBagDTO, true);
 //        T queryDTO = getQueryMap(classType, filter);
 
-        resultDTOs = getGeneralMGR().findByQueryList(queryDTO, getSessionDTO(sessionId), propertyBagDTO);
-        GenericEntity<List<T>> genericEntity = new GenericEntity<List<T>>(resultDTOs) {
-        };
+        Set<String> fields = SparseFieldsetUtils.getFields(getRequestedFields(), classType);
 
-        Response response = null;
         Object oJQueryDataTable = propertyBagDTO.get("jQueryDataTable");
+        if (oJQueryDataTable == null && PropertyBagUtils.getBooleanProperty(propertyBagDTO, CoreSupportConstants.STREAM)) {
+            return getStreamingQueryListResponse(queryDTO, propertyBagDTO, getSessionDTO(sessionId),
+                    PropertyBagUtils.getIntegerProperty(propertyBagDTO, CoreSupportConstants.STREAM_CHUNK_SIZE, 0), fields);
+        }
+
+        Map<String, String> keysetSortOrder = null;
+        if (PropertyBagUtils.getBooleanProperty(propertyBagDTO, CoreSupportConstants.KEYSET)) {
+            keysetSortOrder = setKeysetCursor(queryDTO, propertyBagDTO);
+        }
+
+        // Planned expands are loaded for the whole page after the query, the MGR only expands the rest
+        final Map<String, ExpandPlanner.Relationship> plannedExpands = ExpandPlanner.getPlannedExpands(classType, expand);
+        if (!plannedExpands.isEmpty()) {
+            List<String> unplannedExpands = new ArrayList<>(expand);
+            unplannedExpands.removeAll(plannedExpands.keySet());
+            propertyBagDTO.setChildClassDTOs(getChildClassDTOs(unplannedExpands));
+        }
+
         if (oJQueryDataTable != null) {
-            JQueryDataTable jQueryDataTable = new JQueryDataTable();
-            SessionDTO sessionDTO = getSessionDTO(sessionId);
+            return getJQueryDataTableResponse(filter, classType, queryDTO, propertyBagDTO, property, expand, plannedExpands, keysetSortOrder, sessionId);
+        }
 
-            //
-            // This executes for every page with JQueryDataTable, 
-            // its likely that the database has cached the results so its shouldnt be an issue
-            //
-            // This query gets the filtered rowcount
-            queryDTO.getQueryMap().put(CoreConstants.LAZY_ROWCOUNT, true);
-            Long rowCount = getGeneralMGR().findObjectByQuery(queryDTO, sessionDTO, Long.class, propertyBagDTO);
+        final T finalQueryDTO = queryDTO;
+        final PropertyBagDTO finalPropertyBagDTO = propertyBagDTO;
+        final List<String> finalExpand = expand;
+        final GeneralMGRInterface generalMGR = getGeneralMGR();
+        final SessionDTO sessionDTO = getSessionDTO(sessionId);
+        String singleFlightKey = null;
+        if (SingleFlight.isEnabled()) {
+            singleFlightKey = SingleFlight.getKey("findByQueryList", classType.getName(), queryDTO.getQueryMap(), propertyBagDTO.getQueryClass(),
+                    propertyBagDTO.getPropertyMap(), expand, getAuthorizationScope(sessionId));
+        }
+        resultDTOs = SingleFlight.execute(singleFlightKey, new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws Exception {
+                // Stitched here so coalesced callers share the expanded page
+                List<T> resultDTOs = generalMGR.findByQueryList(finalQueryDTO, sessionDTO, finalPropertyBagDTO);
+                loadPlannedExpands(resultDTOs, finalExpand, plannedExpands, generalMGR, sessionDTO);
+                return resultDTOs;
+            }
+        });
+        Response.ResponseBuilder responseBuilder;
+        if (fields != null) {
+            responseBuilder = Response.ok(getListStreamingOutput(resultDTOs, SparseFieldsetUtils.getStreamingWriter(providers, classType, fields)),
+                    MediaType.APPLICATION_JSON_TYPE);
+        } else {
+            GenericEntity<List<T>> genericEntity = new GenericEntity<List<T>>(resultDTOs) {
+            };
+            responseBuilder = Response.ok(genericEntity);
+        }
+        if (keysetSortOrder != null) {
+            responseBuilder.header(CoreSupportConstants.NEXT_CURSOR_HEADER, getNextCursor(resultDTOs, queryDTO, keysetSortOrder));
+        }
+        return responseBuilder.build();
+    }
+
+    /**
+     * Switch the query from offset to keyset paging. The sort order and the decoded cursor values are passed to the
+     * DAO in the property bag (KEYSET_SORT_ORDER, KEYSET_VALUES) and LAZY_ROW_OFFSET is dropped, the DAO seeks past
+     * the cursor row instead.
+     *
+     * @param queryDTO
+     * @param propertyBagDTO
+     * @return the keyset sort order
+     */
+    private Map<String, String> setKeysetCursor(BaseDTO queryDTO, PropertyBagDTO propertyBagDTO) throws ValidationException, MtsException {
+        final String METHODNAME = "setKeysetCursor ";
+        Map<String, String> keysetSortOrder = KeysetCursorUtils.getSortOrder(queryDTO.getClass(), queryDTO.getQueryMap());
+        propertyBagDTO.put(CoreSupportConstants.KEYSET_SORT_ORDER, keysetSortOrder);
+        String cursor = ObjectUtils.objectToString(propertyBagDTO.get(CoreSupportConstants.CURSOR));
+        if (!StringUtils.isEmpty(cursor)) {
+            Map<String, Object> keysetValues = KeysetCursorUtils.decode(cursor, keysetSortOrder, queryDTO);
+            propertyBagDTO.put(CoreSupportConstants.KEYSET_VALUES, keysetValues);
+            if (logger.isDebugEnabled()) {
+                logger.debug(METHODNAME, "keysetValues=", keysetValues);
+            }
+        }
+        queryDTO.getQueryMap().remove(CoreConstants.LAZY_ROW_OFFSET);
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "keysetSortOrder=", keysetSortOrder);
+        }
+        return keysetSortOrder;
+    }
+
+    private String getNextCursor(List<? extends BaseDTO> resultDTOs, BaseDTO queryDTO, Map<String, String> keysetSortOrder) throws MtsException {
+        return KeysetCursorUtils.getNextCursor(resultDTOs, keysetSortOrder, ObjectUtils.objectToInteger(queryDTO.getQueryMap().get(CoreConstants.LAZY_PAGE_SIZE)));
+    }
+
+    /**
+     * Get the JQueryDataTable page along with its filtered and total rowcounts.
+     *
+     * The page query and the count queries are independent so they are issued concurrently (RsExecutors), each with
+     * its own query DTO and property bag. The counts are cached per resource/queryClass/filter until they expire or
+     * the resource is saved. MGR exceptions are rethrown as-is from the request thread.
+     *
+     * In keyset mode the cursor of the next page is returned in next.
+     *
+     * @param <T>
+     * @param filter
+     * @param classType
+     * @param queryDTO
+     * @param propertyBagDTO
+     * @param property
+     * @param expand
+     * @param plannedExpands the expands loaded for the whole page once it is returned
+     * @param keysetSortOrder the keyset sort order or null when paging by offset
+     * @param sessionId
+     * @return
+     */
+    private <T extends BaseDTO> Response getJQueryDataTableResponse(String filter, Class<T> classType, final T queryDTO, final PropertyBagDTO propertyBagDTO,
+            String property, List<String> expand, Map<String, ExpandPlanner.Relationship> plannedExpands, Map<String, String> keysetSortOrder, String sessionId)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        final String METHODNAME = "getJQueryDataTableResponse ";
+        // Resolve the MGR and session on the request thread, the workers only invoke them
+        final GeneralMGRInterface generalMGR = getGeneralMGR();
+        final SessionDTO sessionDTO = getSessionDTO(sessionId);
+        String resource = ClassUtils.getResourceName(classType);
+        String queryClass = propertyBagDTO.getQueryClass();
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "queryClass=", queryClass);
+        }
+
+        // This query gets the filtered rowcount
+        T filteredQueryDTO = getQueryMap(classType, filter, propertyBagDTO, true);
+        filteredQueryDTO.getQueryMap().put(CoreConstants.LAZY_ROWCOUNT, true);
+        PropertyBagDTO filteredPropertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
+        filteredPropertyBagDTO.setChildClassDTOs(getChildClassDTOs(expand));
+
+        // If its not FindAll, use FindAll to get the total rowcount, otherwise the total is the filtered rowcount
+        T totalQueryDTO = null;
+        PropertyBagDTO totalPropertyBagDTO = null;
+        Object oRecordsTotal = propertyBagDTO.get("JQueryDataTableRecordsTotal");
+        if (oRecordsTotal != null && !"FindAll".equalsIgnoreCase(queryClass)) {
+            totalQueryDTO = getNewDTO(classType);
+            totalQueryDTO.getQueryMap().put(CoreConstants.LAZY, true);
+            totalQueryDTO.getQueryMap().put(CoreConstants.LAZY_ROWCOUNT, true);
+            totalPropertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
+            totalPropertyBagDTO.setQueryClass("FindAll");
+        }
+
+        Future<List<T>> dataFuture = null;
+        Future<Long> filteredFuture = null;
+        Future<Long> totalFuture = null;
+        try {
+            dataFuture = RsExecutors.submit(new Callable<List<T>>() {
+                @Override
+                public List<T> call() throws Exception {
+                    return generalMGR.findByQueryList(queryDTO, sessionDTO, propertyBagDTO);
+                }
+            });
+            String rowCountCacheScope = getRowCountCacheScope(sessionId);
+            filteredFuture = getRowCount(generalMGR, resource, filteredQueryDTO, filteredPropertyBagDTO, sessionDTO, rowCountCacheScope);
+            if (totalQueryDTO != null) {
+                totalFuture = getRowCount(generalMGR, resource, totalQueryDTO, totalPropertyBagDTO, sessionDTO, rowCountCacheScope);
+            }
+
+            JQueryDataTable jQueryDataTable = new JQueryDataTable();
+            List<T> resultDTOs = RsExecutors.getResult(dataFuture);
+            loadPlannedExpands(resultDTOs, expand, plannedExpands, generalMGR, sessionDTO);
+            jQueryDataTable.setData(resultDTOs);
+            if (keysetSortOrder != null) {
+                jQueryDataTable.setNext(getNextCursor(resultDTOs, queryDTO, keysetSortOrder));
+            }
+            Long rowCount = RsExecutors.getResult(filteredFuture);
             jQueryDataTable.setRecordsFiltered(rowCount);
+            if (totalFuture != null) {
+                rowCount = RsExecutors.getResult(totalFuture);
+            }
+            // This is the total count
+            jQueryDataTable.setRecordsTotal(rowCount);
+            Response.ResponseBuilder responseBuilder = Response.ok(jQueryDataTable);
+            if (keysetSortOrder != null) {
+                responseBuilder.header(CoreSupportConstants.NEXT_CURSOR_HEADER, jQueryDataTable.getNext());
+            }
+            return responseBuilder.build();
+        } finally {
+            // Abandon the remaining queries if one failed
+            RsExecutors.cancel(dataFuture, filteredFuture, totalFuture);
+        }
+    }
 
-            String queryClass = propertyBagDTO.getQueryClass();
+    /**
+     * Load the planned expands of a page with one findByQueryList per child resource, the child query class receives
+     * the page's primary keys in EXPAND_PARENT_KEYS, and stitch the children onto their parents. The child queries
+     * are issued concurrently. The child queries are passed the rest of the expands so nested expands, i.e; the
+     * children of a planned child, are still loaded by the MGR.
+     *
+     * @param parentDTOs
+     * @param expand the requested expands
+     * @param plannedExpands
+     * @param generalMGR
+     * @param sessionDTO
+     */
+    private void loadPlannedExpands(List<? extends BaseDTO> parentDTOs, List<String> expand, Map<String, ExpandPlanner.Relationship> plannedExpands,
+            final GeneralMGRInterface generalMGR, final SessionDTO sessionDTO)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        final String METHODNAME = "loadPlannedExpands ";
+        if (plannedExpands.isEmpty() || parentDTOs == null || parentDTOs.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        List<Object> parentKeys = new ArrayList<>(parentDTOs.size());
+        for (BaseDTO parentDTO : parentDTOs) {
+            parentKeys.add(parentDTO.getPrimaryKey());
+        }
+        List<String> childResources = new ArrayList<>(plannedExpands.keySet());
+        List<ExpandPlanner.Relationship> relationships = new ArrayList<>(plannedExpands.values());
+        List<Future<List<BaseDTO>>> futures = new ArrayList<>(relationships.size());
+        try {
+            for (int i = 0; i < relationships.size(); i++) {
+                ExpandPlanner.Relationship relationship = relationships.get(i);
+                final BaseDTO childQueryDTO = getNewDTO(relationship.getChildDtoClass());
+                childQueryDTO.getQueryMap().put(CoreSupportConstants.EXPAND_PARENT_KEYS, parentKeys);
+                final PropertyBagDTO childPropertyBagDTO = new PropertyBagDTO();
+                childPropertyBagDTO.setQueryClass(relationship.getChildQueryClass());
+                List<String> nestedExpands = new ArrayList<>(expand);
+                nestedExpands.remove(childResources.get(i));
+                childPropertyBagDTO.setChildClassDTOs(getChildClassDTOs(nestedExpands));
+                futures.add(RsExecutors.submit(new Callable<List<BaseDTO>>() {
+                    @Override
+                    public List<BaseDTO> call() throws Exception {
+                        return generalMGR.findByQueryList(childQueryDTO, sessionDTO, childPropertyBagDTO);
+                    }
+                }));
+            }
+            for (int i = 0; i < relationships.size(); i++) {
+                relationships.get(i).stitch(parentDTOs, RsExecutors.getResult(futures.get(i)));
+            }
+        } finally {
+            RsExecutors.cancel(futures.toArray(new Future<?>[futures.size()]));
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "expands=", plannedExpands.keySet(), " parents=", parentKeys.size(), " duration=", (System.nanoTime() - start) / 1000000, "ms");
+        }
+    }
+
+    /**
+     * Get the rowcount for the query, served from the RowCountCache when possible, otherwise submitted to the
+     * query executor.
+     *
+     * @param generalMGR
+     * @param resource
+     * @param queryDTO
+     * @param propertyBagDTO
+     * @param sessionDTO
+     * @param scope
+     * @return
+     */
+    private Future<Long> getRowCount(final GeneralMGRInterface generalMGR, final String resource, final BaseDTO queryDTO,
+            final PropertyBagDTO propertyBagDTO, final SessionDTO sessionDTO, String scope) {
+        final String METHODNAME = "getRowCount ";
+        final String key = RowCountCache.getKey(propertyBagDTO.getQueryClass(), queryDTO.getQueryMap(), scope);
+        final Long rowCount = RowCountCache.get(resource, key);
+        if (rowCount != null) {
             if (logger.isDebugEnabled()) {
-                logger.debug(METHODNAME, "queryClass=", queryClass);
+                logger.debug(METHODNAME, "cached rowCount=", rowCount, " resource=", resource, " key=", key);
             }
+            return RsExecutors.runInline(new Callable<Long>() {
+                @Override
+                public Long call() {
+                    return rowCount;
+                }
+            });
+        }
+        return RsExecutors.submit(new Callable<Long>() {
+            @Override
+            public Long call() throws Exception {
+                // A save completing while the count runs bumps the generation and the count is not cached
+                long generation = RowCountCache.getGeneration(resource);
+                Long result = generalMGR.findObjectByQuery(queryDTO, sessionDTO, Long.class, propertyBagDTO);
+                RowCountCache.put(resource, key, result, generation);
+                return result;
+            }
+        });
+    }
+
+    /**
+     * Get the scope cached data table row counts are shared within. Counts are made with the caller's authorization,
+     * by default they are only reused within the same session. Override to share them more widely, i.e; per role.
+     *
+     * @param sessionId
+     * @return
+     */
+    protected String getRowCountCacheScope(String sessionId) {
+        return sessionId;
+    }
 
-            Object oRecordsTotal = propertyBagDTO.get("JQueryDataTableRecordsTotal");
-            if (oRecordsTotal != null) {
-                // If its not FindAll, set it to FindAll to get the total rowcount
-                if (!queryClass.equalsIgnoreCase("FindAll")) {
-                    queryDTO.getQueryMap().clear();
-                    queryDTO.getQueryMap().put(CoreConstants.LAZY, true);
-                    queryDTO.getQueryMap().put(CoreConstants.LAZY_ROWCOUNT, true);
-                    propertyBagDTO.setQueryClass("FindAll");
+    /**
+     * Write the findByQueryList result to the response as a JSON array while it is serialized, rather than
+     * materializing the entire entity for the JSON provider.
+     *
+     * With a chunkSize the result is fetched from the MGR tier in pages of chunkSize rows (LAZY, LAZY_ROW_OFFSET,
+     * LAZY_PAGE_SIZE) so only one chunk is held in memory at a time. The query class must honor the lazy paging keys.
+     * A client supplied LAZY_ROW_OFFSET is where the first chunk starts and a client supplied LAZY_PAGE_SIZE caps the
+     * rows streamed.
+     *
+     * The first chunk is fetched before the response is committed so MGR exceptions surface with their usual status.
+     *
+     * @param <T>
+     * @param queryDTO
+     * @param propertyBagDTO
+     * @param sessionDTO
+     * @param chunkSize rows per MGR call, 0 fetches the result in a single call
+     * @return
+     */
+    private <T extends BaseDTO> Response getStreamingQueryListResponse(final T queryDTO, final PropertyBagDTO propertyBagDTO, final SessionDTO sessionDTO, final int chunkSize,
+            Set<String> fields)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        final String METHODNAME = "getStreamingQueryListResponse ";
+        final ObjectWriter objectWriter = fields != null
+                ? SparseFieldsetUtils.getStreamingWriter(providers, queryDTO.getClass(), fields)
+                : JsonStreamingUtils.getStreamingWriter(providers, queryDTO.getClass());
+        // The client's page, if any, bounds the chunks
+        Integer clientRowOffset = ObjectUtils.objectToInteger(queryDTO.getQueryMap().get(CoreConstants.LAZY_ROW_OFFSET));
+        Integer clientPageSize = ObjectUtils.objectToInteger(queryDTO.getQueryMap().get(CoreConstants.LAZY_PAGE_SIZE));
+        final int firstRowOffset = clientRowOffset != null && clientRowOffset > 0 ? clientRowOffset : 0;
+        final long rowLimit = clientPageSize != null && clientPageSize > 0 ? clientPageSize : Long.MAX_VALUE;
+        final int firstChunkSize = (int) Math.min(chunkSize, rowLimit);
+        final List<T> firstChunk = findByQueryListChunk(queryDTO, propertyBagDTO, sessionDTO, firstRowOffset, firstChunkSize);
+
+        StreamingOutput streamingOutput = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException, WebApplicationException {
+                long start = System.nanoTime();
+                long rowCount = 0;
+                try (JsonGenerator generator = JsonStreamingUtils.createGenerator(objectWriter, out)) {
+                    generator.writeStartArray();
+                    List<T> chunk = firstChunk;
+                    int rowOffset = firstRowOffset;
+                    int currentChunkSize = firstChunkSize;
+                    while (true) {
+                        for (T dto : chunk) {
+                            objectWriter.writeValue(generator, dto);
+                        }
+                        rowCount += chunk.size();
+                        generator.flush();
+                        // A short chunk is the last one, a long chunk means the query class ignored the paging keys
+                        if (chunkSize <= 0 || chunk.size() != currentChunkSize || rowCount >= rowLimit) {
+                            break;
+                        }
+                        rowOffset += currentChunkSize;
+                        currentChunkSize = (int) Math.min(chunkSize, rowLimit - rowCount);
+                        // Release the previous chunk before fetching the next one
+                        chunk = null;
+                        try {
+                            chunk = findByQueryListChunk(queryDTO, propertyBagDTO, sessionDTO, rowOffset, currentChunkSize);
+                        } catch (MtsException | NotFoundException | AuthenticationException | AuthorizationException | ValidationException | ConstraintViolationException e) {
+                            logger.error(METHODNAME, "An ", e.getClass().getSimpleName(), " has occurred at rowOffset=", rowOffset, "; Message: ", e.getMessage(), e);
+                            throw new WebApplicationException(e);
+                        }
+                    }
+                    generator.writeEndArray();
+                } finally {
                     if (logger.isDebugEnabled()) {
-                        logger.debug(METHODNAME, "invoking queryClass=", queryClass);
+                        logger.debug(METHODNAME, "rowCount=", rowCount, " chunkSize=", chunkSize);
+                        logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
                     }
-                    rowCount = getGeneralMGR().findObjectByQuery(queryDTO, sessionDTO, Long.class, propertyBagDTO);
                 }
             }
+        };
+        return Response.ok(streamingOutput, MediaType.APPLICATION_JSON_TYPE).build();
+    }
 
-            // This is the total count
-            jQueryDataTable.setRecordsTotal(rowCount);
-            jQueryDataTable.setData(resultDTOs);
-            response = Response.ok(jQueryDataTable).build();
-        } else {
-            response = Response.ok(genericEntity).build();
+    /**
+     * Get the fields query parameter values (CoreSupportConstants.FIELDS).
+     *
+     * @return
+     */
+    private List<String> getRequestedFields() {
+        UriInfo uriInfo = getUriContext();
+        return uriInfo != null ? uriInfo.getQueryParameters().get(CoreSupportConstants.FIELDS) : null;
+    }
+
+    private <T extends BaseDTO> StreamingOutput getListStreamingOutput(final List<T> dtos, final ObjectWriter objectWriter) {
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException, WebApplicationException {
+                try (JsonGenerator generator = JsonStreamingUtils.createGenerator(objectWriter, out)) {
+                    generator.writeStartArray();
+                    if (dtos != null) {
+                        for (T dto : dtos) {
+                            objectWriter.writeValue(generator, dto);
+                        }
+                    }
+                    generator.writeEndArray();
+                }
+            }
+        };
+    }
+
+    private <T extends BaseDTO> List<T> findByQueryListChunk(T queryDTO, PropertyBagDTO propertyBagDTO, SessionDTO sessionDTO, int rowOffset, int chunkSize)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        if (chunkSize > 0) {
+            queryDTO.getQueryMap().put(CoreConstants.LAZY, true);
+            queryDTO.getQueryMap().put(CoreConstants.LAZY_ROW_OFFSET, rowOffset);
+            queryDTO.getQueryMap().put(CoreConstants.LAZY_PAGE_SIZE, chunkSize);
         }
-        return response;
+        List<T> chunk = getGeneralMGR().findByQueryList(queryDTO, sessionDTO, propertyBagDTO);
+        return chunk != null ? chunk : new ArrayList<T>();
     }
 
     protected <T extends BaseDTO> Response getReportMain(String filter, String resource, String property, String reportParameters, String sessionId)
@@ -245,15 +904,53 @@ public abstract class BaseRSService {
         Response response = null;
         PropertyBagDTO propertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
         Class<? extends BaseDTO> classType = getClassForResource(resource);
+        BaseDTO queryDTO = getReportQueryDTO(classType, filter, propertyBagDTO, reportParameters);
+
+        String filename = getFilename(queryDTO, propertyBagDTO, sessionId);
+        Response.ResponseBuilder responseBuilder;
+        long reportCacheTtl = getReportCacheTtl(classType);
+        if (reportCacheTtl > 0) {
+            String key = ReportCache.getKey(resource, getReportCacheScope(sessionId), queryDTO, propertyBagDTO);
+            ReportCache.Entry entry = ReportCache.get(key);
+            if (entry != null && request != null) {
+                Response.ResponseBuilder notModified = request.evaluatePreconditions(new EntityTag(entry.getETag()));
+                if (notModified != null) {
+                    return notModified.build();
+                }
+            }
+            ReportCache.EntryOutput streamingOutput = entry != null ? ReportCache.getStreamingOutput(entry) : null;
+            if (streamingOutput == null) {
+                try {
+                    long generation = ReportCache.getGeneration(resource);
+                    entry = ReportCache.put(key, resource, getReportStream(queryDTO, propertyBagDTO, getSessionDTO(sessionId)), reportCacheTtl, generation);
+                } catch (IOException e) {
+                    throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+                }
+                streamingOutput = ReportCache.getStreamingOutput(entry);
+                if (streamingOutput == null) {
+                    throw new MtsException("The cached report was removed before it could be served: " + resource);
+                }
+            }
+            closeOnCompletion(streamingOutput);
+            responseBuilder = Response.ok(streamingOutput).tag(new EntityTag(entry.getETag()));
+        } else {
+            responseBuilder = Response.ok(getReport(queryDTO, propertyBagDTO, sessionId));
+        }
+        setReportHeaders(responseBuilder, filename);
+        response = responseBuilder.build();
+        return response;
+    }
+
+    private BaseDTO getReportQueryDTO(Class<? extends BaseDTO> classType, String filter, PropertyBagDTO propertyBagDTO, String reportParameters)
+            throws MtsException, NotFoundException, ValidationException {
         //BaseDTO queryDTO = getQueryMap(classType, filter);
         BaseDTO queryDTO = getQueryMap(classType, filter, propertyBagDTO, false);
         addReportParameters(queryDTO, reportParameters);
+        return queryDTO;
+    }
 
-        String filename = getFilename(queryDTO, propertyBagDTO, sessionId);
-        StreamingOutput streamingOutput = getReport(queryDTO, propertyBagDTO, sessionId);
-        if (StringUtils.isEmpty(filename)) {
-            response = Response.ok(streamingOutput).build();
-        } else {
+    private void setReportHeaders(Response.ResponseBuilder responseBuilder, String filename) {
+        if (!StringUtils.isEmpty(filename)) {
             String contentType = null;
             int periodPos = filename.toUpperCase().indexOf(".");
             if (periodPos >= 0) {
@@ -267,36 +964,162 @@ public abstract class BaseRSService {
                 }
 
             }
-            Response.ResponseBuilder responseBuilder = Response.ok(streamingOutput);
             responseBuilder.header("content-disposition", "attachment; filename=" + filename);
             if (!StringUtils.isEmpty(contentType)) {
                 responseBuilder.header("content-type", contentType);
             }
-            //response = Response.ok(streamingOutput).header("content-disposition","attachment; filename=" + filename).build();
-            response = responseBuilder.build();
+        }
+    }
+
+    /**
+     * Queue the report on the report executor, the query is built as getReportMain builds it.
+     *
+     * getReportStream runs on the report executor with the SessionDTO resolved on the request thread, overrides must not
+     * depend on request scoped context.
+     *
+     * @param filter
+     * @param resource
+     * @param property
+     * @param reportParameters
+     * @param sessionId
+     * @return 202 with the job status and its location
+     */
+    protected Response submitReportJobMain(String filter, String resource, String property, String reportParameters, final String sessionId)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        final String METHODNAME = "submitReportJobMain ";
+        final PropertyBagDTO propertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
+        Class<? extends BaseDTO> classType = getClassForResource(resource);
+        final BaseDTO queryDTO = getReportQueryDTO(classType, filter, propertyBagDTO, reportParameters);
+        String filename = getFilename(queryDTO, propertyBagDTO, sessionId);
+        // Fail fast on the request thread if the MGR tier is unavailable
+        getGeneralMGR();
 
+        final SessionDTO sessionDTO = getSessionDTO(sessionId);
+        ReportJob reportJob;
+        try {
+            reportJob = ReportJobManager.submit(resource, sessionId, filename, new Callable<InputStream>() {
+                @Override
+                public InputStream call() throws Exception {
+                    return getReportStream(queryDTO, propertyBagDTO, sessionDTO);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException("The report queue is full, retry later");
         }
-        return response;
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "reportJob=", reportJob);
+        }
+        Response.ResponseBuilder responseBuilder = Response.accepted(reportJob);
+        UriInfo uriInfo = getUriContext();
+        if (uriInfo != null) {
+            responseBuilder.location(uriInfo.getAbsolutePathBuilder().path(reportJob.getJobId()).build());
+        }
+        return responseBuilder.build();
+    }
+
+    protected Response getReportJobMain(String resource, String jobId, String sessionId) throws NotFoundException {
+        final String METHODNAME = "getReportJobMain ";
+        ReportJob reportJob = ReportJobManager.getReportJob(jobId, sessionId);
+        if (reportJob == null || !reportJob.getResource().equals(resource)) {
+            throw new NotFoundException("Report job not found: " + jobId);
+        }
+        return Response.ok(reportJob).build();
+    }
+
+    protected Response downloadReportJobMain(String resource, String jobId, String sessionId) throws NotFoundException, MtsException {
+        final String METHODNAME = "downloadReportJobMain ";
+        ReportJob reportJob = ReportJobManager.getReportJob(jobId, sessionId);
+        if (reportJob == null || !reportJob.getResource().equals(resource)) {
+            throw new NotFoundException("Report job not found: " + jobId);
+        }
+        InputStream report;
+        try {
+            report = ReportJobManager.getReportInputStream(jobId, sessionId);
+        } catch (IOException e) {
+            throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+        }
+        if (report == null) {
+            throw new ClientErrorException("Report job " + jobId + " is " + reportJob.getStatus(), Status.CONFLICT);
+        }
+        closeOnCompletion(report);
+        Response.ResponseBuilder responseBuilder = Response.ok(RsStreamUtils.getStreamingOutput(report, CoreSupportConfiguration.getReportChunkSize(), METHODNAME));
+        setReportHeaders(responseBuilder, reportJob.getFilename());
+        return responseBuilder.build();
+    }
+
+    /**
+     * Get the report cache time to live for the resource, the CatResourceConfig setting or the configured default.
+     *
+     * @param dtoClass
+     * @return the time to live in milliseconds, 0 when reports of the resource are not cached
+     */
+    protected long getReportCacheTtl(Class<? extends BaseDTO> dtoClass) {
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(dtoClass);
+        if (catResourceConfig != null && catResourceConfig.getReportCacheTtl() != null) {
+            return catResourceConfig.getReportCacheTtl();
+        }
+        return CoreSupportConfiguration.getReportCacheTtl();
+    }
+
+    /**
+     * Get the scope cached reports are shared within. Reports are generated with the caller's authorization, by
+     * default they are only reused within the same session. Override to share reports more widely, i.e; per role.
+     *
+     * @param sessionId
+     * @return
+     */
+    protected String getReportCacheScope(String sessionId) {
+        return sessionId;
     }
 
     private <T extends BaseDTO> StreamingOutput getReport(T queryDTO, PropertyBagDTO propertyBagDTO, String sessionId)
             throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
         final String METHODNAME = "getReport ";
+        InputStream report = getReportStream(queryDTO, propertyBagDTO, getSessionDTO(sessionId));
+        closeOnCompletion(report);
+        return RsStreamUtils.getStreamingOutput(report, CoreSupportConfiguration.getReportChunkSize(), METHODNAME);
+    }
 
-        final byte[] report = getGeneralMGR().getReport(queryDTO, getSessionDTO(sessionId), propertyBagDTO);
-//        if (logger.isDebugEnabled()) {
-        logger.info(METHODNAME, "report.length=", report.length);
-        logger.info(METHODNAME, "report=", new String(report));
-//        }
+    /**
+     * Close the resource once the request completes. The container does not call StreamingOutput.write when the
+     * request fails before the response is written, so streams (and spool files) handed to a StreamingOutput are
+     * released here as well. Closing an already closed resource has no effect.
+     *
+     * @param closeable
+     */
+    protected void closeOnCompletion(final Closeable closeable) {
+        if (closeableService != null && closeable != null) {
+            closeableService.add(closeable);
+        }
+    }
 
-        StreamingOutput streamingOutput = new StreamingOutput() {
-            @Override
-            public void write(OutputStream out) throws IOException, WebApplicationException {
-                out.write(report);
-                out.flush();
-            }
-        };
-        return streamingOutput;
+    /**
+     * Get the report content, the stream is copied to the client in fixed size chunks and closed once written.
+     *
+     * The default implementation calls GeneralMGRInterface.getReport, the byte array is spooled to a temp file when
+     * it exceeds the spool threshold so it is not held while the client downloads it. Override to supply a source
+     * that can stream the report.
+     *
+     * @param <T>
+     * @param queryDTO
+     * @param propertyBagDTO
+     * @param sessionDTO
+     * @return
+     */
+    protected <T extends BaseDTO> InputStream getReportStream(T queryDTO, PropertyBagDTO propertyBagDTO, SessionDTO sessionDTO)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        final String METHODNAME = "getReportStream ";
+        long start = System.nanoTime();
+        byte[] report = getGeneralMGR().getReport(queryDTO, sessionDTO, propertyBagDTO);
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "report.length=", report.length);
+            logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
+        }
+        try {
+            return RsStreamUtils.getSpooledInputStream(report, CoreSupportConfiguration.getReportSpoolThreshold());
+        } catch (IOException e) {
+            throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+        }
     }
 
     protected Response exportDataMain(String filter, String resource, String property, String sessionId)
@@ -311,20 +1134,93 @@ public abstract class BaseRSService {
         //BaseDTO queryDTO = getQueryMap(classType, filter);
         Map<String, byte[]> exportData = exportData(queryDTO, propertyBagDTO, sessionId);
 
+        if (isZipExport(propertyBagDTO)) {
+            return Response.ok(getZipStreamingOutput(exportData), CoreSupportConstants.APPLICATION_ZIP)
+                    .header("content-disposition", "attachment; filename=" + resource + ".zip")
+                    .build();
+        }
+
         GenericEntity<Map<String, byte[]>> genericEntity = new GenericEntity<Map<String, byte[]>>(exportData) {
         };
 
-        response = Response.ok(genericEntity).build();
+        response = Response.ok(genericEntity, MediaType.APPLICATION_JSON_TYPE).build();
 
         return response;
     }
 
+    /**
+     * Is the export requested as a zip, either by exportFormat=zip in the property bag or by an explicit
+     * application/zip Accept header. Wildcard Accept headers get the legacy JSON map.
+     *
+     * @param propertyBagDTO
+     * @return
+     */
+    private boolean isZipExport(PropertyBagDTO propertyBagDTO) {
+        if (CoreSupportConstants.EXPORT_FORMAT_ZIP.equalsIgnoreCase(ObjectUtils.objectToString(propertyBagDTO.get(CoreSupportConstants.EXPORT_FORMAT)))) {
+            return true;
+        }
+        if (httpHeaders != null) {
+            for (MediaType mediaType : httpHeaders.getAcceptableMediaTypes()) {
+                if (!mediaType.isWildcardType() && !mediaType.isWildcardSubtype()
+                        && mediaType.isCompatible(MediaType.valueOf(CoreSupportConstants.APPLICATION_ZIP))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Write each export file to the response as a zip entry. Entries are removed from the map as they are written so
+     * the written content can be collected while the rest of the export streams.
+     *
+     * @param exportData
+     * @return
+     */
+    private StreamingOutput getZipStreamingOutput(final Map<String, byte[]> exportData) {
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException, WebApplicationException {
+                final String METHODNAME = "write ";
+                long start = System.nanoTime();
+                int entries = 0;
+                long length = 0;
+                ZipOutputStream zipOutputStream = new ZipOutputStream(out);
+                if (exportData != null) {
+                    Iterator<Map.Entry<String, byte[]>> iterator = exportData.entrySet().iterator();
+                    while (iterator.hasNext()) {
+                        Map.Entry<String, byte[]> entry = iterator.next();
+                        byte[] content = entry.getValue();
+                        zipOutputStream.putNextEntry(new ZipEntry(entry.getKey()));
+                        if (content != null) {
+                            zipOutputStream.write(content);
+                            length += content.length;
+                        }
+                        zipOutputStream.closeEntry();
+                        entries++;
+                        try {
+                            iterator.remove();
+                        } catch (UnsupportedOperationException e) {
+                            // unmodifiable map, the content is released with the map
+                        }
+                    }
+                }
+                zipOutputStream.finish();
+                zipOutputStream.flush();
+                if (logger.isDebugEnabled()) {
+                    logger.debug(METHODNAME, "entries=", entries, " length=", length);
+                }
+                logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
+            }
+        };
+    }
+
     private <T extends BaseDTO> Map<String, byte[]> exportData(T queryDTO, PropertyBagDTO propertyBagDTO, String sessionId)
             throws ValidationException, NotFoundException, MtsException, AuthenticationException, AuthorizationException {
         final String METHODNAME = "exportData ";
         Map<String, byte[]> result = getGeneralMGR().exportData(queryDTO, getSessionDTO(sessionId), propertyBagDTO);
         if (logger.isDebugEnabled()) {
-            logger.debug(METHODNAME, "result=", result);
+            logger.debug(METHODNAME, "result.keySet()=", result != null ? result.keySet() : null);
         }
         return result;
     }
@@ -352,6 +1248,73 @@ public abstract class BaseRSService {
         return Response.ok().build();
     }
 
+    /**
+     * Import an uploaded file in batches. The file is read incrementally and every batch of records is passed to
+     * GeneralMGRInterface.importData as the payload of its own property bag, so each batch commits on its own.
+     *
+     * If a batch fails after earlier batches have been committed the summary is returned with a 500 status and the
+     * failed batch, a failure in the first batch is thrown as is.
+     *
+     * @param payload
+     * @param filename
+     * @param resource
+     * @param property
+     * @param sessionId
+     * @return the import summary
+     */
+    protected Response importMultipartDataMain(InputStream payload, String filename, String resource, String property, String sessionId)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        final String METHODNAME = "importMultipartDataMain ";
+        long start = System.nanoTime();
+        if (payload == null) {
+            throw new ValidationException("Missing form data parameter: " + CoreSupportConstants.IMPORT_PAYLOAD);
+        }
+        PropertyBagDTO propertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
+        Class<? extends BaseDTO> classType = getClassForResource(resource);
+        String format = ObjectUtils.objectToString(propertyBagDTO.get(CoreSupportConstants.IMPORT_FORMAT));
+        if (StringUtils.isEmpty(format)) {
+            format = filename != null && filename.toLowerCase().endsWith(".xml") ? ImportBatchReader.XML : ImportBatchReader.CSV;
+        }
+        int batchSize = PropertyBagUtils.getIntegerProperty(propertyBagDTO, CoreSupportConstants.IMPORT_BATCH_SIZE, CoreSupportConfiguration.getImportBatchSize());
+        Object header = propertyBagDTO.get(CoreSupportConstants.IMPORT_HEADER);
+        boolean hasHeader = header == null || ObjectUtils.objectToBoolean(header);
+
+        ImportSummary importSummary = new ImportSummary();
+        importSummary.setResource(resource);
+        try (ImportBatchReader importBatchReader = ImportBatchReader.newImportBatchReader(payload, format, batchSize, hasHeader)) {
+            String batch;
+            while ((batch = importBatchReader.nextBatch()) != null) {
+                int batchNumber = importSummary.getBatches() + 1;
+                PropertyBagDTO batchPropertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
+                batchPropertyBagDTO.put(CoreSupportConstants.IMPORT_PAYLOAD, batch);
+                batchPropertyBagDTO.put(CoreSupportConstants.IMPORT_BATCH, batchNumber);
+                try {
+                    importData(classType, batchPropertyBagDTO, sessionId);
+                } catch (MtsException | NotFoundException | AuthenticationException | AuthorizationException | ValidationException | ConstraintViolationException | RuntimeException e) {
+                    if (batchNumber == 1) {
+                        throw e;
+                    }
+                    logger.error(METHODNAME, "batch ", batchNumber, " failed after ", importSummary.getRecords(), " records; ", e.getClass().getSimpleName(), ": ", e.getMessage());
+                    importSummary.setFailedBatch(batchNumber);
+                    importSummary.setMessage("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage());
+                    importSummary.setDuration((System.nanoTime() - start) / 1000000);
+                    return Response.status(Status.INTERNAL_SERVER_ERROR).entity(importSummary).type(MediaType.APPLICATION_JSON_TYPE).build();
+                }
+                importSummary.setBatches(batchNumber);
+                importSummary.setRecords(importSummary.getRecords() + importBatchReader.getRecordCount());
+                if (logger.isDebugEnabled()) {
+                    logger.debug(METHODNAME, "resource=", resource, " batch=", batchNumber, " records=", importSummary.getRecords());
+                }
+            }
+        } catch (IOException e) {
+            throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+        }
+        importSummary.setCompleted(true);
+        importSummary.setDuration((System.nanoTime() - start) / 1000000);
+        logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
+        return Response.ok(importSummary).build();
+    }
+
     private void importData(Class dtoClass, PropertyBagDTO propertyBagDTO, String sessionId)
             throws ValidationException, NotFoundException, MtsException, AuthenticationException, AuthorizationException, ConstraintViolationException {
         getGeneralMGR().importData(dtoClass, getSessionDTO(sessionId), propertyBagDTO);
@@ -424,6 +1387,69 @@ public abstract class BaseRSService {
         // Extract propertyBagDTO from jsonProperty string
         PropertyBagDTO propertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
 
+        boolean returnResource = isReturnResource(propertyBagDTO);
+
+        return getResponse(save(dto, operation, propertyBagDTO, sessionId), returnResource, operation);
+    }
+
+    /**
+     * Delete the resource by primary key.
+     *
+     * By default the DTO is read first and the full DTO deleted, a missing DTO is a 404. Resources that opt in with
+     * CatResourceConfig.setDeleteByPrimaryKey(true) have a primary key only DTO marked deleted and saved, a single MGR
+     * call.
+     *
+     * @param primaryKey
+     * @param classType
+     * @param property
+     * @param sessionId
+     * @return
+     */
+    public Response deleteMain(Object primaryKey, Class<? extends BaseDTO> classType, String property, String sessionId)
+            throws ValidationException, NotFoundException, MtsException, AuthenticationException, AuthorizationException, ConstraintViolationException {
+        final String METHODNAME = "deleteMain ";
+        BaseDTO dto;
+        if (isDeleteByPrimaryKey(classType)) {
+            dto = getDeleteByPrimaryKeyDTO(primaryKey, classType);
+        } else {
+            // Get the DTO and delete it, its on your back end to deal with all the children (business or database layer)
+            // The DTO is read from the MGR directly, save marks it deleted so it must not be a cached or coalesced
+            // result other callers share
+            dto = getGeneralMGR().findByPrimaryKey(getPrimaryKeyDTO(primaryKey, classType), getSessionDTO(sessionId),
+                    PropertyBagUtils.getJsonPropertyBagDTO(property));
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "primaryKey=", primaryKey, " classType=", classType.getSimpleName());
+        }
+        return saveMain(dto, Operation.DELETE, property, sessionId);
+    }
+
+    public Response deleteMain(Object primaryKey, String resource, String property, String sessionId)
+            throws ValidationException, NotFoundException, MtsException, AuthenticationException, AuthorizationException, ConstraintViolationException {
+        return deleteMain(primaryKey, getClassForResource(resource), property, sessionId);
+    }
+
+    private boolean isDeleteByPrimaryKey(Class<? extends BaseDTO> classType) {
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(classType);
+        return catResourceConfig != null && catResourceConfig.isDeleteByPrimaryKey();
+    }
+
+    /**
+     * Get a primary key only DTO in the state a read DTO has, UNSET, so the delete is handled as the delete of a
+     * loaded DTO.
+     *
+     * @param primaryKey
+     * @param classType
+     * @return
+     * @throws MtsException
+     */
+    private BaseDTO getDeleteByPrimaryKeyDTO(Object primaryKey, Class<? extends BaseDTO> classType) throws MtsException {
+        BaseDTO dto = getPrimaryKeyDTO(primaryKey, classType);
+        DTOUtils.setDTOState(dto, DTOState.UNSET);
+        return dto;
+    }
+
+    private boolean isReturnResource(PropertyBagDTO propertyBagDTO) {
         // Extract returnResource flag (String or Boolean support)
         Object oReturnResource = propertyBagDTO.get(CoreRsConstants.RS_RETURN_RESOURCE);
 //        logger.debug(METHODNAME, "oReturnResource=", oReturnResource);
@@ -438,12 +1464,154 @@ public abstract class BaseRSService {
                 // Wrong type
             }
         }
+        return returnResource;
+    }
 
-        return getResponse(save(dto, operation, propertyBagDTO, sessionId), returnResource, operation);
+    /**
+     * Create, update or delete the items of a bulk request.
+     *
+     * The request is a JSON array of {"operation": "ADD|UPDATE|DELETE", "dto": {...}} items. It is spooled to a temp
+     * file so the response can be written while it is read, then parsed one item at a time. Each item is saved as
+     * saveMain would save it (the same DTOState handling, DELETE as deleteMain deletes) and its result is streamed
+     * back as an element of a JSON array of BulkResult. The resource caches are invalidated and the response flushed
+     * once per batch of items rather than per item.
+     *
+     * @param payload
+     * @param resource
+     * @param property
+     * @param sessionId
+     * @return
+     */
+    protected Response bulkMain(InputStream payload, String resource, final String property, final String sessionId)
+            throws MtsException, NotFoundException, ValidationException {
+        final String METHODNAME = "bulkMain ";
+        if (payload == null) {
+            throw new ValidationException("The bulk request requires an array of items");
+        }
+        final Class<? extends BaseDTO> classType = getClassForResource(resource);
+        final ObjectMapper objectMapper = JsonStreamingUtils.getObjectMapper(providers, classType);
+        final ObjectWriter objectWriter = JsonStreamingUtils.getStreamingWriter(providers, classType);
+        final boolean returnResource = isReturnResource(PropertyBagUtils.getJsonPropertyBagDTO(property));
+        final int batchSize = Math.max(1, CoreSupportConfiguration.getBulkBatchSize());
+        final File spoolFile;
+        try {
+            spoolFile = RsStreamUtils.spool(payload, "mts-rs-bulk-");
+        } catch (IOException e) {
+            throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+        }
+        // The container does not call write when the request fails before the response, delete the file once the
+        // request completes either way
+        if (closeableService != null) {
+            closeableService.add(new Closeable() {
+                @Override
+                public void close() {
+                    RsStreamUtils.deleteFile(spoolFile);
+                }
+            });
+        }
+
+        StreamingOutput streamingOutput = new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException, WebApplicationException {
+                long start = System.nanoTime();
+                int index = 0;
+                try (InputStream in = new FileInputStream(spoolFile);
+                        JsonParser parser = objectMapper.getFactory().createParser(in);
+                        JsonGenerator generator = JsonStreamingUtils.createGenerator(objectWriter, out)) {
+                    if (parser.nextToken() != JsonToken.START_ARRAY) {
+                        throw new ClientErrorException("The bulk request requires an array of items", Status.BAD_REQUEST);
+                    }
+                    generator.writeStartArray();
+                    JsonToken token;
+                    while ((token = parser.nextToken()) != null && token != JsonToken.END_ARRAY) {
+                        // Any value is read as a whole, items that are not objects are reported as a 400
+                        JsonNode item = objectMapper.readTree(parser);
+                        objectWriter.writeValue(generator, saveBulkItem(index, item, classType, objectMapper, returnResource, property, sessionId));
+                        index++;
+                        if (index % batchSize == 0) {
+                            invalidateResourceCaches(classType);
+                            generator.flush();
+                        }
+                    }
+                    generator.writeEndArray();
+                    generator.flush();
+                } finally {
+                    if (index % batchSize != 0) {
+                        invalidateResourceCaches(classType);
+                    }
+                    RsStreamUtils.deleteFile(spoolFile);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(METHODNAME, "resource=", classType.getSimpleName(), " items=", index);
+                    }
+                    logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
+                }
+            }
+        };
+        return Response.ok(streamingOutput, MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
+    private BulkResult saveBulkItem(int index, JsonNode item, Class<? extends BaseDTO> classType, ObjectMapper objectMapper,
+            boolean returnResource, String property, String sessionId) {
+        final String METHODNAME = "saveBulkItem ";
+        BulkResult bulkResult = new BulkResult();
+        bulkResult.setIndex(index);
+        try {
+            if (item == null || !item.isObject()) {
+                throw new ValidationException("Item " + index + " is not an object");
+            }
+            Operation operation = Operation.valueOf(item.path("operation").asText(Operation.ADD.name()).toUpperCase());
+            bulkResult.setOperation(operation.name());
+            JsonNode dtoNode = item.get("dto");
+            if (dtoNode == null || !dtoNode.isObject()) {
+                throw new ValidationException("Item " + index + " is missing its dto");
+            }
+            BaseDTO dto = objectMapper.treeToValue(dtoNode, classType);
+            PropertyBagDTO propertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
+            if (operation == Operation.DELETE) {
+                // Delete as the single DELETE does, by primary key unless the resource needs the full DTO
+                if (isDeleteByPrimaryKey(classType)) {
+                    dto = getDeleteByPrimaryKeyDTO(dto.getPrimaryKey(), classType);
+                } else {
+                    dto = getGeneralMGR().findByPrimaryKey(dto, getSessionDTO(sessionId), PropertyBagUtils.getJsonPropertyBagDTO(property));
+                }
+            }
+            BaseDTO resultDTO = save(dto, operation, propertyBagDTO, sessionId, false);
+            bulkResult.setStatus(operation == Operation.ADD ? Status.CREATED.getStatusCode() : Status.OK.getStatusCode());
+            if (resultDTO != null && operation != Operation.DELETE) {
+                bulkResult.setLocation(getPath(resultDTO));
+                if (returnResource) {
+                    bulkResult.setResource(resultDTO);
+                }
+            }
+        } catch (IOException | IllegalArgumentException | ValidationException e) {
+            setBulkError(bulkResult, Status.BAD_REQUEST, e);
+        } catch (NotFoundException e) {
+            setBulkError(bulkResult, Status.NOT_FOUND, e);
+        } catch (AuthenticationException e) {
+            setBulkError(bulkResult, Status.UNAUTHORIZED, e);
+        } catch (AuthorizationException e) {
+            setBulkError(bulkResult, Status.FORBIDDEN, e);
+        } catch (ConstraintViolationException e) {
+            setBulkError(bulkResult, Status.CONFLICT, e);
+        } catch (MtsException | RuntimeException e) {
+            logger.error(METHODNAME, "item ", index, " An ", e.getClass().getSimpleName(), " has occurred; Message: ", e.getMessage());
+            setBulkError(bulkResult, Status.INTERNAL_SERVER_ERROR, e);
+        }
+        return bulkResult;
+    }
+
+    private void setBulkError(BulkResult bulkResult, Status status, Exception e) {
+        bulkResult.setStatus(status.getStatusCode());
+        bulkResult.setMessage("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage());
     }
 
     private BaseDTO save(BaseDTO dto, Operation operation, PropertyBagDTO propertyBagDTO, String sessionId)
             throws ValidationException, NotFoundException, MtsException, AuthenticationException, AuthorizationException, ConstraintViolationException {
+        return save(dto, operation, propertyBagDTO, sessionId, true);
+    }
+
+    private BaseDTO save(BaseDTO dto, Operation operation, PropertyBagDTO propertyBagDTO, String sessionId, boolean invalidateCaches)
+            throws ValidationException, NotFoundException, MtsException, AuthenticationException, AuthorizationException, ConstraintViolationException {
         final String METHODNAME = "save ";
 //        logger.debug(METHODNAME, "operation=", operation, " dto.getClass().getCanonicalName()=", dto.getClass().getCanonicalName());
 
@@ -509,16 +1677,108 @@ public abstract class BaseRSService {
         SessionDTO sessionDTO = getSessionDTO(sessionId);
         BaseDTO resultDTO;
 
-        if (customSave) {
-            propertyBagDTO.getPropertyMap().remove("customSave");
-            resultDTO = (BaseDTO) getGeneralMGR().customSave(dto, sessionDTO, propertyBagDTO);
-        } else {
-            resultDTO = (BaseDTO) getGeneralMGR().save(dto, sessionDTO, propertyBagDTO);
+        try {
+            if (customSave) {
+                propertyBagDTO.getPropertyMap().remove("customSave");
+                resultDTO = (BaseDTO) getGeneralMGR().customSave(dto, sessionDTO, propertyBagDTO);
+            } else {
+                resultDTO = (BaseDTO) getGeneralMGR().save(dto, sessionDTO, propertyBagDTO);
+            }
+        } finally {
+            // The write may have partially succeeded, invalidate regardless
+            if (invalidateCaches) {
+                invalidateResourceCaches(dto.getClass(), dto.getPrimaryKey());
+            }
         }
 
         return resultDTO;
     }
 
+    /**
+     * Drop the RS tier cached data for a resource after it has been written.
+     *
+     * @param dtoClass
+     */
+    protected void invalidateResourceCaches(Class<? extends BaseDTO> dtoClass) {
+        invalidateResourceCaches(dtoClass, null);
+    }
+
+    /**
+     * Drop the RS tier cached data for a resource after the primary key has been written, a null key drops every
+     * cached DTO of the resource.
+     *
+     * @param dtoClass
+     * @param primaryKey
+     */
+    protected void invalidateResourceCaches(Class<? extends BaseDTO> dtoClass, Object primaryKey) {
+        final String METHODNAME = "invalidateResourceCaches ";
+        String resource = ClassUtils.getResourceName(dtoClass);
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "resource=", resource, " primaryKey=", primaryKey);
+        }
+        RowCountCache.invalidate(resource);
+        ReportCache.invalidate(resource);
+        PrototypeCache.invalidate(resource);
+        DtoCache.invalidate(dtoClass, primaryKey);
+    }
+
+    /**
+     * Run the task on the async executor and resume the suspended response with its result. The response is resumed
+     * with 503 when the executor or the asyncMaxConcurrency limit is saturated and with 504 when the task outlives
+     * getAsyncTimeout, the task is then interrupted.
+     *
+     * @param asyncResponse
+     * @param resource
+     * @param task
+     */
+    protected void submitAsync(final AsyncResponse asyncResponse, String resource, final Callable<?> task) {
+        final String METHODNAME = "submitAsync ";
+        if (!RsExecutors.tryAcquireAsync()) {
+            asyncResponse.resume(new ServiceUnavailableException("Too many concurrent requests, retry later"));
+            return;
+        }
+        final FutureTask<Void> futureTask = new FutureTask<Void>(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    asyncResponse.resume(task.call());
+                } catch (Exception e) {
+                    asyncResponse.resume(e);
+                }
+            }
+        }, null) {
+            @Override
+            protected void done() {
+                RsExecutors.releaseAsync();
+            }
+        };
+        asyncResponse.setTimeoutHandler(new TimeoutHandler() {
+            @Override
+            public void handleTimeout(AsyncResponse timedOutResponse) {
+                logger.warn(METHODNAME, "request timed out");
+                futureTask.cancel(true);
+                timedOutResponse.resume(new WebApplicationException("The request timed out", Status.GATEWAY_TIMEOUT));
+            }
+        });
+        asyncResponse.setTimeout(getAsyncTimeout(resource), TimeUnit.MILLISECONDS);
+        try {
+            RsExecutors.getAsyncExecutor().execute(futureTask);
+        } catch (RejectedExecutionException e) {
+            RsExecutors.releaseAsync();
+            asyncResponse.resume(new ServiceUnavailableException("The request queue is full, retry later"));
+        }
+    }
+
+    /**
+     * Get the time an async request for the resource may take before it is answered with 504.
+     *
+     * @param resource
+     * @return milliseconds
+     */
+    protected long getAsyncTimeout(String resource) {
+        return CoreSupportConfiguration.getAsyncTimeout();
+    }
+
     public Response newInstanceMain(String resource, String property, String sessionId)
             throws ValidationException, NotFoundException, MtsException, AuthenticationException, AuthorizationException, ConstraintViolationException {
         final String METHODNAME = "newInstanceMain ";
@@ -526,7 +1786,32 @@ public abstract class BaseRSService {
             logger.debug(METHODNAME);
         }
         PropertyBagDTO propertyBagDTO = PropertyBagUtils.getJsonPropertyBagDTO(property);
-        return getResponse(getGeneralMGR().newInstance(getClassForResource(resource), getSessionDTO(sessionId), propertyBagDTO), true, null);
+        Class<? extends BaseDTO> classType = getClassForResource(resource);
+        if (!PrototypeCache.isEnabled()) {
+            return getResponse(getGeneralMGR().newInstance(classType, getSessionDTO(sessionId), propertyBagDTO), true, null);
+        }
+
+        // Hand out a copy of the cached template, the MGR is only called on a miss
+        String key = PrototypeCache.getKey(propertyBagDTO.getPropertyMap(), getPrototypeCacheScope(sessionId));
+        BaseDTO dto = PrototypeCache.get(classType, resource, key);
+        if (dto == null) {
+            dto = getGeneralMGR().newInstance(classType, getSessionDTO(sessionId), propertyBagDTO);
+            PrototypeCache.put(resource, key, dto);
+        } else if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "cache hit, resource=", resource);
+        }
+        return getResponse(dto, true, null);
+    }
+
+    /**
+     * Get the scope cached newInstance templates are shared within. Defaults may be derived from the caller's
+     * session, by default templates are only reused within the same session. Override to share them more widely.
+     *
+     * @param sessionId
+     * @return
+     */
+    protected String getPrototypeCacheScope(String sessionId) {
+        return sessionId;
     }
 
     public String pingMain(@QueryParam("message") String message) throws ValidationException {
@@ -537,11 +1822,34 @@ public abstract class BaseRSService {
         return message + " received at: " + new Date();
     }
 
+    /**
+     * Get the SessionDTO for the session id. The SessionDTO is resolved once per request and shared by every MGR
+     * call the request makes.
+     *
+     * @param sessionId
+     * @return
+     */
     public SessionDTO getSessionDTO(String sessionId) {
         final String METHODNAME = "getSessionDTO ";
 //        logger.debug(METHODNAME, "sessionId=", sessionId);
-        SessionDTO sessionDTO = new SessionDTO();
-        sessionDTO.setSessionId(sessionId);
+        String attributeName = SessionDTO.class.getName() + '.' + sessionId;
+        SessionDTO sessionDTO = null;
+        boolean requestScope = false;
+        try {
+            if (httpServletRequest != null) {
+                sessionDTO = (SessionDTO) httpServletRequest.getAttribute(attributeName);
+                requestScope = true;
+            }
+        } catch (IllegalStateException e) {
+            // Called outside of the request
+        }
+        if (sessionDTO == null) {
+            sessionDTO = new SessionDTO();
+            sessionDTO.setSessionId(sessionId);
+            if (requestScope) {
+                httpServletRequest.setAttribute(attributeName, sessionDTO);
+            }
+        }
         return sessionDTO;
     }
 
@@ -648,79 +1956,71 @@ public abstract class BaseRSService {
             // Limit scope to calls that really need the setter called
             if (callSetter) {
                 // Record extra time im handling Query Map assignment to DTO
-                Long start = System.nanoTime();
+                long start = System.nanoTime();
 
+                // Field lookup and analysis is cached per DTO class
+                QueryMapBinder<T> queryMapBinder = QueryMapBinder.getQueryMapBinder(classType);
                 for (Map.Entry<String, Object> entry : queryDTO.getQueryMap().entrySet()) {
-                    try {
-                        String key = entry.getKey();
-                        // Ignore these fields as they are used for paging
-                        if (key.equalsIgnoreCase(CoreConstants.LAZY) || key.equalsIgnoreCase(CoreConstants.LAZY_PAGE_SIZE)
-                                || key.equalsIgnoreCase(CoreConstants.LAZY_ROW_OFFSET) || key.equalsIgnoreCase(CoreConstants.SORT_FIELD)
-                                || key.equalsIgnoreCase(CoreConstants.SORT_ORDER) || key.equalsIgnoreCase(CoreConstants.LAZY_ROWCOUNT)) {
-                            continue;
+                    String key = entry.getKey();
+                    // Ignore these fields as they are used for paging
+                    if (QueryMapBinder.isPagingKey(key)) {
+                        continue;
+                    }
+                    QueryMapBinder.FieldBinding fieldBinding = queryMapBinder.getFieldBinding(key);
+                    if (fieldBinding == null) {
+                        // As there are alot of these, log as debug
+                        if (logger.isDebugEnabled()) {
+                            logger.debug(METHODNAME, "No field exists for classType=", classType.getSimpleName(),
+                                    " for queryMap.getKey()=", key, ". This can occur if the field in the query map doesnt exist in the DTO");
                         }
-                        Field field = classType.getDeclaredField(key);
-                        // Null check probably unecessary but do it anyway
-                        if (field != null) {
-                            //
-                            // We cant handle BaseDTO for a number of reasons
-                            // 1. The QueryDTO's declared Field is a referenceDTO and its QueryDTO.getQueryMap().getKey() would need to match its Field Name
-                            // 2. The QueryDTO.getQueryMap().getValue would need to contain a structure that identifies the declared Fields of the referenceDTO
-                            //
-                            // For example:
-                            //    Assuming the Main DTO contains a referenceDTO named where the name of the referenceDTO = refDTO
-                            //    1. The QueryDTO.getQueryMap().getKey()='refDTO' --> key name matches QueryDTO declared field name
-                            //    2. The QueryDTO.getQueryMap().getValue() = '{ stateCode: 'NY' }', refDTO.setStateCode would be called and assigned NY
-                            //    
-                            //
-                            // Set to accessible
-                            field.setAccessible(true);
-
-                            // Get the dataValue
-                            Object dataValue = DTOProperty.getDataValue(field, entry.getValue(), queryDTO);
-                            // Apply dataValue to setter for the field on the DTO (Handles all FieldTypes except BaseDTO
-                            field.set(queryDTO, dataValue);
+                        continue;
+                    }
+                    try {
+                        //
+                        // We cant handle BaseDTO for a number of reasons
+                        // 1. The QueryDTO's declared Field is a referenceDTO and its QueryDTO.getQueryMap().getKey() would need to match its Field Name
+                        // 2. The QueryDTO.getQueryMap().getValue would need to contain a structure that identifies the declared Fields of the referenceDTO
+                        //
+                        // For example:
+                        //    Assuming the Main DTO contains a referenceDTO named where the name of the referenceDTO = refDTO
+                        //    1. The QueryDTO.getQueryMap().getKey()='refDTO' --> key name matches QueryDTO declared field name
+                        //    2. The QueryDTO.getQueryMap().getValue() = '{ stateCode: 'NY' }', refDTO.setStateCode would be called and assigned NY
+                        //    
+                        //
+                        // Get the dataValue and apply it to the field on the DTO (Handles all FieldTypes except BaseDTO)
+                        Object dataValue = fieldBinding.bind(queryDTO, entry.getValue());
 
-                            if (logger.isDebugEnabled()) {
-                                Object oFieldValue = field.get(queryDTO);
-                                logger.debug(METHODNAME, "oFieldValue=", oFieldValue, " oFieldValue.getClass().getSimpleName()=", oFieldValue.getClass().getSimpleName());
-                            }
+                        if (logger.isDebugEnabled()) {
+                            logger.debug(METHODNAME, "oFieldValue=", dataValue, " oFieldValue.getClass().getSimpleName()=",
+                                    dataValue != null ? dataValue.getClass().getSimpleName() : "NULL");
+                        }
 
+                        //
+                        // It its an Enum skip it as setting it on the queryMap will cause issues in the DAO code as it expects the enum code
+                        // As DAO's where coded to deal with Strings for Enums/Booleans do not apply the value back on the QueryMap
+                        if (fieldBinding.isQueryMapValue(dataValue)) {
+                            // Since via the current filter is a human readable String, every filter value is a String
+                            // An Integer, Long or Date is a String, which gets applied to the DTO via the dataValue above
+                            // The dataValue is the propery data type which is then applied to the queryMap
+                            // When the BO/DAO receives the queryMap all the keys provided they match the DTO's properties 
+                            // will be the correct type. 
+                            // 
+                            // Note: Its still important to use ObjectUtils in your DAO/BO calls when refering 
+                            // to values stored in the QueryMap, because there are going to be keys that are still strings
+                            // These are the keys that didnt map to DTO properties.
+
+                            // If we introduce a JSON encoding the issue of dataType associated with NON DTO mapped keys 
+                            // is no longer an issue. There are other data type precision issues accross Number types
+                            // Longs loose there precision if a Long stores an Integer, Double stored a Long etc, etc, as 
+                            // well as the Human Readable interface issue, where a GET is harder to construct.
                             //
-                            // It its an Enum skip it as setting it on the queryMap will cause issues in the DAO code as it expects the enum code
-                            // As DAO's where coded to deal with Strings for Enums/Booleans do not apply the value back on the QueryMap
-                            FieldType fieldType = FieldType.getFieldType(field.getType());
-                            if (fieldType != FieldType.Enumeration && !(dataValue instanceof Boolean)) {
-                                // Since via the current filter is a human readable String, every filter value is a String
-                                // An Integer, Long or Date is a String, which gets applied to the DTO via the dataValue above
-                                // The dataValue is the propery data type which is then applied to the queryMap
-                                // When the BO/DAO receives the queryMap all the keys provided they match the DTO's properties 
-                                // will be the correct type. 
-                                // 
-                                // Note: Its still important to use ObjectUtils in your DAO/BO calls when refering 
-                                // to values stored in the QueryMap, because there are going to be keys that are still strings
-                                // These are the keys that didnt map to DTO properties. See NoSuchFieldException
-
-                                // If we introduce a JSON encoding the issue of dataType associated with NON DTO mapped keys 
-                                // is no longer an issue. There are other data type precision issues accross Number types
-                                // Longs loose there precision if a Long stores an Integer, Double stored a Long etc, etc, as 
-                                // well as the Human Readable interface issue, where a GET is harder to construct.
-                                //
-                                queryDTO.getQueryMap().put(key, dataValue);
-                            }
-                        }
-                    } catch (NoSuchFieldException ex) {
-                        // As there are alot of these, log as debug
-                        if (logger.isDebugEnabled()) {
-                            logger.warn(METHODNAME, "A NoSuchFieldException has occurred for classType=" + classType.getSimpleName()
-                                    + " for queryMap.getKey()=" + entry.getKey() + "."
-                                    + " This can occur if the field in the query map doesnt exist in the DTO, Message: " + ex.getMessage());
+                            queryDTO.getQueryMap().put(key, dataValue);
                         }
                     } catch (SecurityException | IllegalAccessException | IllegalArgumentException | InvocationTargetException | InstantiationException | NotFoundException ex) {
                         throw new MtsException("An " + ex.getClass().getSimpleName() + " has occurred, Message: " + ex.getMessage(), ex);
                     }
-                    logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
                 }
+                logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
             }
         }
         return queryDTO;
@@ -777,7 +2077,19 @@ public abstract class BaseRSService {
         for (PathSegment segment : path) {
             keys.add(segment.getPath());
         }
+        return getPrimaryKeys(resource, keys);
+    }
 
+    /**
+     * Get the primary key from its segments, a single segment is returned as is and composite keys are mapped to the
+     * DTO's primary key fields in order.
+     *
+     * @param resource
+     * @param keys
+     * @return
+     * @throws MtsException
+     */
+    protected Object getPrimaryKeys(String resource, List<String> keys) throws MtsException {
         if (keys.size() == 1) {
             return keys.get(0);
         }
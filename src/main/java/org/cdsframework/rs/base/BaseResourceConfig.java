@@ -31,12 +31,12 @@ import org.cdsframework.rs.provider.CoreLoggingFilter;
 import org.cdsframework.rs.provider.GenericExceptionMapper;
 import org.cdsframework.rs.support.CoreConfiguration;
 import org.cdsframework.util.LogUtils;
-import org.glassfish.jersey.client.filter.EncodingFilter;
 import org.glassfish.jersey.jackson.JacksonFeature;
 import org.glassfish.jersey.logging.LoggingFeature;
 import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.glassfish.jersey.message.GZipEncoder;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.filter.EncodingFilter;
 
 /**
  *
@@ -71,6 +71,12 @@ public class BaseResourceConfig extends ResourceConfig {
         // handle multipart form submission
         register(MultiPartFeature.class);
 
+        // Tag findByPrimaryKey responses and answer If-None-Match
+        register(EntityTagFilter.class);
+
+        // Release the private executors on undeploy
+        register(RsLifecycleListener.class);
+
     }
     
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.base;
+
+import org.cdsframework.base.BaseDTO;
+
+/**
+ * The outcome of one key of a batch (multi-get) request.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class BatchResult {
+
+    private int status;
+    private String message;
+    private BaseDTO resource;
+
+    public BatchResult() {
+    }
+
+    public BatchResult(int status, String message, BaseDTO resource) {
+        this.status = status;
+        this.message = message;
+        this.resource = resource;
+    }
+
+    /**
+     * Get the value of status
+     *
+     * @return the HTTP status of the key, 200 or 404
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Set the value of status
+     *
+     * @param status new value of status
+     */
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    /**
+     * Get the value of message
+     *
+     * @return the value of message
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Set the value of message
+     *
+     * @param message new value of message
+     */
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Get the value of resource
+     *
+     * @return the resource or null if it was not found
+     */
+    public BaseDTO getResource() {
+        return resource;
+    }
+
+    /**
+     * Set the value of resource
+     *
+     * @param resource new value of resource
+     */
+    public void setResource(BaseDTO resource) {
+        this.resource = resource;
+    }
+}
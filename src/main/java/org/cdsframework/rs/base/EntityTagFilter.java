@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.base;
+
+import java.io.IOException;
+import java.util.List;
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Providers;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.rs.support.CoreRsConstants;
+import org.cdsframework.rs.util.JsonStreamingUtils;
+import org.cdsframework.rs.util.RsDigestUtils;
+import org.cdsframework.util.LogUtils;
+
+/**
+ * Adds a strong ETag to the DTO response of an EntityTagged resource method and answers a matching If-None-Match with
+ * 304, registered by BaseResourceConfig.
+ *
+ * The ETag is derived from the DTO's version (BaseRSService.getDTOVersion, lastModDatetime by default) along with the
+ * class, key and property variant. An expanded DTO, or one without version data, is tagged with the hash of its
+ * serialized form, which is then sent as the entity so the DTO is only serialized once. The version of the parent does
+ * not change with its children.
+ *
+ * @author HLN Consulting, LLC
+ */
+@EntityTagged
+@Priority(Priorities.HEADER_DECORATOR)
+public class EntityTagFilter implements ContainerResponseFilter {
+
+    private static final LogUtils logger = LogUtils.getLogger(EntityTagFilter.class);
+    @Context
+    private Providers providers;
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) throws IOException {
+        final String METHODNAME = "filter ";
+        if (responseContext.getStatus() != Response.Status.OK.getStatusCode() || !(responseContext.getEntity() instanceof BaseDTO)
+                || responseContext.getEntityTag() != null) {
+            return;
+        }
+        BaseDTO dto = (BaseDTO) responseContext.getEntity();
+        MultivaluedMap<String, String> queryParameters = requestContext.getUriInfo().getQueryParameters();
+        List<String> expand = queryParameters.get(CoreRsConstants.QUERYPARMEXPAND);
+
+        Object dtoVersion = null;
+        if (expand == null || expand.isEmpty()) {
+            for (Object resource : requestContext.getUriInfo().getMatchedResources()) {
+                if (resource instanceof BaseRSService) {
+                    dtoVersion = ((BaseRSService) resource).getDTOVersion(dto);
+                    break;
+                }
+            }
+        }
+        EntityTag eTag;
+        if (dtoVersion != null) {
+            String variant = dto.getClass().getName() + '\n' + dto.getPrimaryKey() + '\n'
+                    + queryParameters.getFirst(CoreRsConstants.QUERYPARMPROPERTY) + '\n';
+            eTag = new EntityTag(RsDigestUtils.sha256Hex(variant + dtoVersion));
+        } else {
+            byte[] json = JsonStreamingUtils.getObjectMapper(providers, dto.getClass()).writeValueAsBytes(dto);
+            eTag = new EntityTag(RsDigestUtils.sha256Hex(json));
+            responseContext.setEntity(json, responseContext.getEntityAnnotations(), MediaType.APPLICATION_JSON_TYPE);
+        }
+        responseContext.getHeaders().putSingle(HttpHeaders.ETAG, eTag);
+
+        Response.ResponseBuilder notModified = requestContext.getRequest().evaluatePreconditions(eTag);
+        if (notModified != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(METHODNAME, "not modified, eTag=", eTag);
+            }
+            responseContext.setStatusInfo(notModified.build().getStatusInfo());
+            responseContext.setEntity(null);
+        }
+    }
+}
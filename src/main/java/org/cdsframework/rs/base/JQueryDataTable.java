@@ -37,6 +37,7 @@ public class JQueryDataTable<Dto extends BaseDTO> {
     private Long recordsTotal;
     private Long recordsFiltered;
     private List<Dto> data;
+    private String next;
 
     public Long getRecordsTotal() {
         return recordsTotal;
@@ -61,6 +62,19 @@ public class JQueryDataTable<Dto extends BaseDTO> {
     public void setData( List<Dto> data) {
         this.data = data;
     }
+
+    /**
+     * Get the keyset cursor of the next page, null when paging by offset or on the last page.
+     *
+     * @return
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
     
     
     
@@ -63,6 +63,20 @@ public abstract class CatResourceConfig implements CatResourceConfigInterface {
     private String globalSearchFieldName = "text";
     private final List<String> primaryKeyList = new ArrayList<>();
     private final Map<String, Map<String, Object>> parentChildMap = new HashMap<>();
+    @XmlTransient
+    private Long reportCacheTtl;
+    @XmlTransient
+    private boolean deleteByPrimaryKey;
+    @XmlTransient
+    private Long dtoCacheTtl;
+    @XmlTransient
+    private Long dtoCacheMaxBytes;
+    @XmlTransient
+    private boolean dtoCacheShared;
+    @XmlTransient
+    private String batchQueryClass;
+    @XmlTransient
+    private boolean expandPlanner;
 
     /**
      * Get the value of primaryKeyList
@@ -244,8 +258,137 @@ public abstract class CatResourceConfig implements CatResourceConfigInterface {
         this.crudRsUri = crudRsUri;
     }
 
+    /**
+     * Get the value of reportCacheTtl
+     *
+     * @return the report cache time to live in milliseconds, null for the configured default
+     */
+    public Long getReportCacheTtl() {
+        return reportCacheTtl;
+    }
+
+    /**
+     * Set the value of reportCacheTtl, 0 disables report caching for the resource.
+     *
+     * @param reportCacheTtl new value of reportCacheTtl
+     */
+    public void setReportCacheTtl(Long reportCacheTtl) {
+        this.reportCacheTtl = reportCacheTtl;
+    }
+
+    /**
+     * Get the value of deleteByPrimaryKey
+     *
+     * @return true if a DELETE sends a primary key only DTO in a single MGR call, false if the DTO is read first
+     */
+    public boolean isDeleteByPrimaryKey() {
+        return deleteByPrimaryKey;
+    }
+
+    /**
+     * Set the value of deleteByPrimaryKey, false by default. Only set it for resources whose delete logic does not
+     * need the full DTO or a not found check before the delete.
+     *
+     * @param deleteByPrimaryKey new value of deleteByPrimaryKey
+     */
+    public void setDeleteByPrimaryKey(boolean deleteByPrimaryKey) {
+        this.deleteByPrimaryKey = deleteByPrimaryKey;
+    }
+
     @Override
     public String toString() {
         return "ResourceConfig{" + "defaultValues=" + defaultValues + ", baseHeader=" + baseHeader + ", dtoClass=" + dtoClass + '}';
     }
+
+    /**
+     * Get the value of dtoCacheTtl
+     *
+     * @return the findByPrimaryKey cache time to live in milliseconds, null for the configured default
+     */
+    public Long getDtoCacheTtl() {
+        return dtoCacheTtl;
+    }
+
+    /**
+     * Set the value of dtoCacheTtl, 0 disables findByPrimaryKey caching for the resource.
+     *
+     * @param dtoCacheTtl new value of dtoCacheTtl
+     */
+    public void setDtoCacheTtl(Long dtoCacheTtl) {
+        this.dtoCacheTtl = dtoCacheTtl;
+    }
+
+    /**
+     * Get the value of dtoCacheMaxBytes
+     *
+     * @return the serialized size limit of the resource's findByPrimaryKey cache, null for the configured default
+     */
+    public Long getDtoCacheMaxBytes() {
+        return dtoCacheMaxBytes;
+    }
+
+    /**
+     * Set the value of dtoCacheMaxBytes
+     *
+     * @param dtoCacheMaxBytes new value of dtoCacheMaxBytes
+     */
+    public void setDtoCacheMaxBytes(Long dtoCacheMaxBytes) {
+        this.dtoCacheMaxBytes = dtoCacheMaxBytes;
+    }
+
+    /**
+     * Get the value of dtoCacheShared
+     *
+     * @return true if cached DTOs are shared across sessions, false if each session has its own entries
+     */
+    public boolean isDtoCacheShared() {
+        return dtoCacheShared;
+    }
+
+    /**
+     * Set the value of dtoCacheShared, only for resources whose reads are not filtered by the session's authorization.
+     *
+     * @param dtoCacheShared new value of dtoCacheShared
+     */
+    public void setDtoCacheShared(boolean dtoCacheShared) {
+        this.dtoCacheShared = dtoCacheShared;
+    }
+
+    /**
+     * Get the value of batchQueryClass
+     *
+     * @return the query class that fetches the primary keys of a batch request (BATCH_PRIMARY_KEYS) in one
+     * findByQueryList call, null to look the keys up individually
+     */
+    public String getBatchQueryClass() {
+        return batchQueryClass;
+    }
+
+    /**
+     * Set the value of batchQueryClass
+     *
+     * @param batchQueryClass new value of batchQueryClass
+     */
+    public void setBatchQueryClass(String batchQueryClass) {
+        this.batchQueryClass = batchQueryClass;
+    }
+
+    /**
+     * Get the value of expandPlanner
+     *
+     * @return true if the child query classes of the resource's relationships accept the primary keys of a page of
+     * parents (EXPAND_PARENT_KEYS) so list expands are loaded with one query per child resource
+     */
+    public boolean isExpandPlanner() {
+        return expandPlanner;
+    }
+
+    /**
+     * Set the value of expandPlanner
+     *
+     * @param expandPlanner new value of expandPlanner
+     */
+    public void setExpandPlanner(boolean expandPlanner) {
+        this.expandPlanner = expandPlanner;
+    }
 }
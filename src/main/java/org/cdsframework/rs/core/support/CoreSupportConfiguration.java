@@ -0,0 +1,355 @@
+package org.cdsframework.rs.core.support;
+
+/**
+ * Tuning settings for the RS support tier.
+ *
+ * Values are read from JVM system properties prefixed with org.cdsframework.rs. so they can be set per server
+ * without a code change, i.e; -Dorg.cdsframework.rs.propertyCacheSize=512
+ *
+ * @author HLN Consulting, LLC
+ */
+public class CoreSupportConfiguration {
+
+    public static final String PROPERTY_PREFIX = "org.cdsframework.rs.";
+
+    /**
+     * Maximum number of parsed property query parameters held in the property cache, 0 disables the cache.
+     *
+     * @return
+     */
+    public static int getPropertyCacheSize() {
+        return getInteger("propertyCacheSize", 256);
+    }
+
+    /**
+     * Property query parameters longer than this are parsed but never cached (i.e; import payloads).
+     *
+     * @return
+     */
+    public static int getPropertyCacheMaxLength() {
+        return getInteger("propertyCacheMaxLength", 4096);
+    }
+
+    /**
+     * Time to live in milliseconds of cached data table row counts, 0 disables the row count cache.
+     *
+     * @return
+     */
+    public static long getRowCountCacheTtl() {
+        return getLong("rowCountCacheTtl", 30000L);
+    }
+
+    /**
+     * Maximum number of cached data table row counts per resource.
+     *
+     * @return
+     */
+    public static int getRowCountCacheSize() {
+        return getInteger("rowCountCacheSize", 1000);
+    }
+
+    /**
+     * Time to live of cached newInstance templates in milliseconds, 0 disables the cache.
+     *
+     * @return
+     */
+    public static long getPrototypeCacheTtl() {
+        return getLong("prototypeCacheTtl", 300000L);
+    }
+
+    /**
+     * Maximum number of cached newInstance templates per resource.
+     *
+     * @return
+     */
+    public static int getPrototypeCacheSize() {
+        return getInteger("prototypeCacheSize", 100);
+    }
+
+    /**
+     * Resolve the MGR client handles once and reuse them (MgrClientCache).
+     *
+     * @return
+     */
+    public static boolean isMgrClientCache() {
+        return getBoolean("mgrClientCache", true);
+    }
+
+    /**
+     * Initial delay before a failed MGR lookup is retried in milliseconds, doubled on each failure.
+     *
+     * @return
+     */
+    public static long getMgrReconnectBackoff() {
+        return getLong("mgrReconnectBackoff", 500L);
+    }
+
+    /**
+     * Maximum delay before a failed MGR lookup is retried in milliseconds.
+     *
+     * @return
+     */
+    public static long getMgrReconnectBackoffMax() {
+        return getLong("mgrReconnectBackoffMax", 30000L);
+    }
+
+    /**
+     * Issue the data table page and count queries concurrently.
+     *
+     * @return
+     */
+    public static boolean isParallelQueries() {
+        return getBoolean("parallelQueries", true);
+    }
+
+    /**
+     * Prefer the container's default ManagedExecutorService (propagates container context) over the private pool.
+     *
+     * @return
+     */
+    public static boolean isUseManagedExecutor() {
+        return getBoolean("useManagedExecutor", true);
+    }
+
+    /**
+     * Threads in the private query pool used when no ManagedExecutorService is available.
+     *
+     * @return
+     */
+    public static int getQueryExecutorPoolSize() {
+        return getInteger("queryExecutorPoolSize", 16);
+    }
+
+    /**
+     * Queued tasks in the private query pool, once full tasks run on the calling thread.
+     *
+     * @return
+     */
+    public static int getQueryExecutorQueueSize() {
+        return getInteger("queryExecutorQueueSize", 64);
+    }
+
+    /**
+     * Bytes copied per write when streaming reports.
+     *
+     * @return
+     */
+    public static int getReportChunkSize() {
+        return getInteger("reportChunkSize", 64 * 1024);
+    }
+
+    /**
+     * Reports larger than this many bytes are spooled to a temp file rather than held until the client has read them.
+     *
+     * @return
+     */
+    public static int getReportSpoolThreshold() {
+        return getInteger("reportSpoolThreshold", 1024 * 1024);
+    }
+
+    /**
+     * Directory for spooled reports, defaults to java.io.tmpdir.
+     *
+     * @return
+     */
+    public static String getReportSpoolDirectory() {
+        return getString("reportSpoolDirectory", null);
+    }
+
+    /**
+     * Default report cache time to live in milliseconds for resources that do not set one, 0 disables the cache.
+     *
+     * @return
+     */
+    public static long getReportCacheTtl() {
+        return getLong("reportCacheTtl", 0L);
+    }
+
+    /**
+     * Size cap of the report cache in bytes.
+     *
+     * @return
+     */
+    public static long getReportCacheMaxBytes() {
+        return getLong("reportCacheMaxBytes", 256L * 1024 * 1024);
+    }
+
+    /**
+     * Default time to live of the findByPrimaryKey cache in milliseconds, 0 disables it.
+     *
+     * @return
+     */
+    public static long getDtoCacheTtl() {
+        return getLong("dtoCacheTtl", 0L);
+    }
+
+    /**
+     * Default serialized size limit of each resource's findByPrimaryKey cache in bytes.
+     *
+     * @return
+     */
+    public static long getDtoCacheMaxBytes() {
+        return getLong("dtoCacheMaxBytes", 16L * 1024 * 1024);
+    }
+
+    /**
+     * Parent directory of the report cache, defaults to java.io.tmpdir.
+     *
+     * @return
+     */
+    public static String getReportCacheDirectory() {
+        return getString("reportCacheDirectory", null);
+    }
+
+    /**
+     * Report jobs generated concurrently.
+     *
+     * @return
+     */
+    public static int getReportJobPoolSize() {
+        return getInteger("reportJobPoolSize", 2);
+    }
+
+    /**
+     * Report jobs waiting for a thread, once full submissions are refused.
+     *
+     * @return
+     */
+    public static int getReportJobQueueSize() {
+        return getInteger("reportJobQueueSize", 20);
+    }
+
+    /**
+     * Run the async resources on virtual threads when the JDK supports them, otherwise on a bounded pool.
+     *
+     * @return
+     */
+    public static boolean isAsyncVirtualThreads() {
+        return getBoolean("asyncVirtualThreads", true);
+    }
+
+    /**
+     * Thread count of the async resource pool.
+     *
+     * @return
+     */
+    public static int getAsyncPoolSize() {
+        return getInteger("asyncPoolSize", 64);
+    }
+
+    /**
+     * Queue size of the async resource pool.
+     *
+     * @return
+     */
+    public static int getAsyncQueueSize() {
+        return getInteger("asyncQueueSize", 256);
+    }
+
+    /**
+     * Maximum number of in flight async requests, further requests are answered with 503.
+     *
+     * @return
+     */
+    public static int getAsyncMaxConcurrency() {
+        return getInteger("asyncMaxConcurrency", getAsyncPoolSize() + getAsyncQueueSize());
+    }
+
+    /**
+     * Time an async request may take before it is answered with 504, in milliseconds.
+     *
+     * @return
+     */
+    public static long getAsyncTimeout() {
+        return getLong("asyncTimeout", 30000L);
+    }
+
+    /**
+     * Coalesce identical concurrent findByPrimaryKey and findByQueryList calls (SingleFlight).
+     *
+     * @return
+     */
+    public static boolean isSingleFlight() {
+        return getBoolean("singleFlight", false);
+    }
+
+    /**
+     * Maximum number of keys in a batch (multi-get) request.
+     *
+     * @return
+     */
+    public static int getBatchMaxKeys() {
+        return getInteger("batchMaxKeys", 1000);
+    }
+
+    /**
+     * Number of concurrent findByPrimaryKey calls a batch request issues when the resource has no batch query class.
+     *
+     * @return
+     */
+    public static int getBatchParallelism() {
+        return getInteger("batchParallelism", 8);
+    }
+
+    /**
+     * Maximum number of cached sparse fieldset writers.
+     *
+     * @return
+     */
+    public static int getFieldsWriterCacheSize() {
+        return getInteger("fieldsWriterCacheSize", 256);
+    }
+
+    /**
+     * Cache-Control max-age in seconds of the rendered resource configs, clients revalidate with the ETag after.
+     *
+     * @return
+     */
+    public static int getConfigMaxAge() {
+        return getInteger("configMaxAge", 86400);
+    }
+
+    /**
+     * Milliseconds a finished report job is kept for download.
+     *
+     * @return
+     */
+    public static long getReportJobTtl() {
+        return getLong("reportJobTtl", 60L * 60 * 1000);
+    }
+
+    /**
+     * Records per importData call for multipart imports.
+     *
+     * @return
+     */
+    public static int getImportBatchSize() {
+        return getInteger("importBatchSize", 1000);
+    }
+
+    /**
+     * Bulk items saved between cache invalidations and response flushes.
+     *
+     * @return
+     */
+    public static int getBulkBatchSize() {
+        return getInteger("bulkBatchSize", 500);
+    }
+
+    public static int getInteger(String name, int defaultValue) {
+        return Integer.getInteger(PROPERTY_PREFIX + name, defaultValue);
+    }
+
+    public static long getLong(String name, long defaultValue) {
+        return Long.getLong(PROPERTY_PREFIX + name, defaultValue);
+    }
+
+    public static boolean getBoolean(String name, boolean defaultValue) {
+        String value = System.getProperty(PROPERTY_PREFIX + name);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    public static String getString(String name, String defaultValue) {
+        return System.getProperty(PROPERTY_PREFIX + name, defaultValue);
+    }
+}
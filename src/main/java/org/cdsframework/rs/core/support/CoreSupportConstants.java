@@ -0,0 +1,92 @@
+package org.cdsframework.rs.core.support;
+
+/**
+ * Property bag keys understood by the RS support tier.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class CoreSupportConstants {
+
+    /**
+     * Stream the findByQueryList result to the client as it is serialized (Boolean)
+     */
+    public static final String STREAM = "stream";
+    /**
+     * When streaming, fetch the result from the MGR tier in chunks of this many rows using the lazy paging keys
+     * (Integer). The query class must honor LAZY, LAZY_ROW_OFFSET and LAZY_PAGE_SIZE.
+     */
+    public static final String STREAM_CHUNK_SIZE = "streamChunkSize";
+    /**
+     * Page with a keyset (seek) cursor instead of LAZY_ROW_OFFSET (Boolean). The next cursor is returned in the
+     * NEXT_CURSOR_HEADER response header, and as next on a JQueryDataTable.
+     */
+    public static final String KEYSET = "keyset";
+    /**
+     * The opaque cursor returned with the previous page (String).
+     */
+    public static final String CURSOR = "cursor";
+    /**
+     * Set by the RS tier in keyset mode, the ordering the DAO must apply: field name to asc/desc, sort fields
+     * followed by the primary key (LinkedHashMap&lt;String, String&gt;).
+     */
+    public static final String KEYSET_SORT_ORDER = "keysetSortOrder";
+    /**
+     * Set by the RS tier when a cursor was supplied, the last row's values for each KEYSET_SORT_ORDER field
+     * (LinkedHashMap&lt;String, Object&gt;). The DAO seeks to the rows after these values rather than offsetting.
+     */
+    public static final String KEYSET_VALUES = "keysetValues";
+    /**
+     * Response header carrying the cursor of the next page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    /**
+     * Export format (String), zip streams the export as application/zip rather than the legacy JSON map.
+     */
+    public static final String EXPORT_FORMAT = "exportFormat";
+    public static final String EXPORT_FORMAT_ZIP = "zip";
+    public static final String APPLICATION_ZIP = "application/zip";
+    /**
+     * The import content handed to GeneralMGRInterface.importData (String).
+     */
+    public static final String IMPORT_PAYLOAD = "payload";
+    /**
+     * Multipart import format, csv or xml (String). Defaults from the uploaded file name, otherwise csv.
+     */
+    public static final String IMPORT_FORMAT = "importFormat";
+    /**
+     * Records per importData call for multipart imports (Integer).
+     */
+    public static final String IMPORT_BATCH_SIZE = "importBatchSize";
+    /**
+     * Does the csv import start with a header line, repeated in every batch (Boolean, default true).
+     */
+    public static final String IMPORT_HEADER = "importHeader";
+    /**
+     * Set by the RS tier on multipart imports, the 1 based batch number (Integer).
+     */
+    public static final String IMPORT_BATCH = "importBatch";
+    /**
+     * Path under the general resource root served by AsyncGeneralRSService.
+     */
+    public static final String ASYNC_PATH = "async";
+    /**
+     * Query parameter of the batch (multi-get) endpoint, repeated per key. Composite keys are given as their path
+     * segments, i.e; key=1/2.
+     */
+    public static final String BATCH_KEY = "key";
+    /**
+     * Set by the RS tier on batch requests of resources with a CatResourceConfig batchQueryClass, the primary keys to
+     * fetch (List).
+     */
+    public static final String BATCH_PRIMARY_KEYS = "primaryKeys";
+    /**
+     * Set by the RS tier on the child queries of planned list expands (CatResourceConfig expandPlanner), the primary
+     * keys of the page's parents (List).
+     */
+    public static final String EXPAND_PARENT_KEYS = "parentKeys";
+    /**
+     * Query parameter restricting list responses to the named properties, comma separated or repeated. Dotted paths
+     * select properties of nested DTOs.
+     */
+    public static final String FIELDS = "fields";
+}
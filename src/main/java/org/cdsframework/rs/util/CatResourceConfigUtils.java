@@ -36,12 +36,15 @@ import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Pattern.Flag;
@@ -78,6 +81,7 @@ public class CatResourceConfigUtils {
             ".*\\$.*|serialVersionUID|dtoState",
             java.util.regex.Pattern.CASE_INSENSITIVE
             | java.util.regex.Pattern.MULTILINE);
+    private static final ConcurrentMap<Class<? extends BaseDTO>, CatResourceConfig> CAT_RESOURCE_CONFIGS = new ConcurrentHashMap<>();
 
     public static void preProcessCatResourceConfig(CatResourceConfig catResourceConfig) {
         String simpleName = catResourceConfig.getDtoClass().getSimpleName();
@@ -92,6 +96,48 @@ public class CatResourceConfigUtils {
         initializeSortPositions(catResourceConfig);
     }
 
+    /**
+     * Register the config so the RS tier can look it up by dto class.
+     *
+     * @param catResourceConfig
+     */
+    public static void registerCatResourceConfig(CatResourceConfig catResourceConfig) {
+        CAT_RESOURCE_CONFIGS.put(catResourceConfig.getDtoClass(), catResourceConfig);
+    }
+
+    /**
+     * Get the registered config for the dto class.
+     *
+     * @param dtoClass
+     * @return the config or null if no plugin registered one
+     */
+    public static CatResourceConfig getCatResourceConfig(Class<? extends BaseDTO> dtoClass) {
+        return CAT_RESOURCE_CONFIGS.get(dtoClass);
+    }
+
+    /**
+     * Get the resource names of the registered configs that have the resource as a child, directly or through
+     * another child.
+     *
+     * @param resourceName
+     * @return
+     */
+    public static Set<String> getParentResourceNames(String resourceName) {
+        Set<String> parentResourceNames = new HashSet<>();
+        List<String> pending = new LinkedList<>();
+        pending.add(resourceName);
+        while (!pending.isEmpty()) {
+            String childResourceName = pending.remove(0);
+            for (CatResourceConfig catResourceConfig : CAT_RESOURCE_CONFIGS.values()) {
+                if (catResourceConfig.getParentChildMap().containsKey(childResourceName)
+                        && parentResourceNames.add(catResourceConfig.getResourceName())) {
+                    pending.add(catResourceConfig.getResourceName());
+                }
+            }
+        }
+        return parentResourceNames;
+    }
+
     /**
      * Process a dto class and populate the supplied field map.
      *
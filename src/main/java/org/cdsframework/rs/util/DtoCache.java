@@ -0,0 +1,498 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.rs.core.support.CatResourceConfig;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+import org.cdsframework.util.ClassUtils;
+import org.cdsframework.util.LogUtils;
+
+/**
+ * RS tier read-through cache of findByPrimaryKey results.
+ *
+ * Entries are keyed by resource, primary key, expand set, property and the caller's scope and hold the serialized
+ * DTO, which is both the entry's weight and a deep copy so callers can not modify the cached state. Each resource has
+ * its own time to live and weight limit (CatResourceConfig, or the configured defaults), the least recently used
+ * entries are evicted once the limit is exceeded.
+ *
+ * Writes invalidate the key, every entry of the resource's children (saves cascade), of its parents (which may embed
+ * it as a child) and every entry expanded with the resource, found through each cache's index of entries by expanded
+ * resource. Each write bumps the resource's generation. A read is only cached when neither its resource nor any
+ * resource it expands was written while it ran.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class DtoCache {
+
+    private static final LogUtils logger = LogUtils.getLogger(DtoCache.class);
+    private static final ConcurrentMap<String, ResourceCache> RESOURCE_CACHES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, AtomicLong> GENERATIONS = new ConcurrentHashMap<>();
+    private static final AtomicLong HIT_COUNT = new AtomicLong();
+    private static final AtomicLong MISS_COUNT = new AtomicLong();
+    private static final AtomicLong EVICTION_COUNT = new AtomicLong();
+
+    /**
+     * Is the cache enabled for the dto class.
+     *
+     * @param dtoClass
+     * @return
+     */
+    public static boolean isEnabled(Class<? extends BaseDTO> dtoClass) {
+        return getTtl(dtoClass) > 0 && getMaxBytes(dtoClass) > 0;
+    }
+
+    /**
+     * Build the cache key.
+     *
+     * @param primaryKey
+     * @param expand
+     * @param property
+     * @param scope
+     * @return
+     */
+    public static String getKey(Object primaryKey, List<String> expand, String property, String scope) {
+        return getPrimaryKeyKey(primaryKey) + '\n' + getExpandSet(expand) + '\n' + property + '\n' + scope;
+    }
+
+    /**
+     * Get the current generation of the resource and the resources it is expanded with, pass it to put so a read
+     * that raced a write is not cached.
+     *
+     * @param dtoClass
+     * @param expand
+     * @return
+     */
+    public static long getGeneration(Class<? extends BaseDTO> dtoClass, List<String> expand) {
+        return getGeneration(ClassUtils.getResourceName(dtoClass), getExpandSet(expand));
+    }
+
+    /**
+     * Get a copy of the cached DTO.
+     *
+     * @param <T>
+     * @param dtoClass
+     * @param key
+     * @return the copy or null if it is not cached
+     */
+    public static <T extends BaseDTO> T get(Class<T> dtoClass, String key) {
+        final String METHODNAME = "get ";
+        byte[] bytes = getResourceCache(dtoClass).get(key);
+        if (bytes == null) {
+            MISS_COUNT.incrementAndGet();
+            return null;
+        }
+        try {
+            T dto = dtoClass.cast(deserialize(bytes));
+            HIT_COUNT.incrementAndGet();
+            return dto;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warn(METHODNAME, "An ", e.getClass().getSimpleName(), " has occurred; Message: ", e.getMessage());
+            MISS_COUNT.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Cache the DTO unless the resource was written since generation was read.
+     *
+     * @param dtoClass
+     * @param key
+     * @param primaryKey
+     * @param expand
+     * @param dto
+     * @param generation
+     */
+    public static void put(Class<? extends BaseDTO> dtoClass, String key, Object primaryKey, List<String> expand, BaseDTO dto, long generation) {
+        final String METHODNAME = "put ";
+        if (dto == null) {
+            return;
+        }
+        byte[] bytes;
+        try {
+            bytes = serialize(dto);
+        } catch (IOException e) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(METHODNAME, dtoClass.getSimpleName(), " is not cacheable; Message: ", e.getMessage());
+            }
+            return;
+        }
+        getResourceCache(dtoClass).put(key, new Entry(bytes, getPrimaryKeyKey(primaryKey), getExpandSet(expand),
+                System.currentTimeMillis() + getTtl(dtoClass)), ClassUtils.getResourceName(dtoClass), generation);
+    }
+
+    /**
+     * Invalidate the entries for the primary key, or all of the resource's entries when the key is null, along with
+     * the entries of its parent resources and entries expanded with it.
+     *
+     * @param dtoClass
+     * @param primaryKey
+     */
+    public static void invalidate(Class<? extends BaseDTO> dtoClass, Object primaryKey) {
+        String resource = ClassUtils.getResourceName(dtoClass);
+        // Bump the generation before removing the entries, a read that is put after the removal sees the new one
+        getGenerationCounter(resource).incrementAndGet();
+        ResourceCache resourceCache = RESOURCE_CACHES.get(resource);
+        if (resourceCache != null) {
+            if (primaryKey != null) {
+                resourceCache.invalidate(getPrimaryKeyKey(primaryKey));
+            } else {
+                resourceCache.invalidateAll();
+            }
+        }
+        // Saves cascade to the resource's children
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(dtoClass);
+        if (catResourceConfig != null) {
+            for (String childResource : catResourceConfig.getParentChildMap().keySet()) {
+                getGenerationCounter(childResource).incrementAndGet();
+                ResourceCache childCache = RESOURCE_CACHES.get(childResource);
+                if (childCache != null) {
+                    childCache.invalidateAll();
+                }
+            }
+        }
+        for (String parentResource : CatResourceConfigUtils.getParentResourceNames(resource)) {
+            getGenerationCounter(parentResource).incrementAndGet();
+            ResourceCache parentCache = RESOURCE_CACHES.get(parentResource);
+            if (parentCache != null) {
+                parentCache.invalidateAll();
+            }
+        }
+        // Reads expanded with the resource are guarded by its generation, only the cached entries are removed
+        for (ResourceCache item : RESOURCE_CACHES.values()) {
+            item.invalidateExpanded(resource);
+        }
+    }
+
+    public static void invalidateAll() {
+        for (AtomicLong generation : GENERATIONS.values()) {
+            generation.incrementAndGet();
+        }
+        for (ResourceCache resourceCache : RESOURCE_CACHES.values()) {
+            resourceCache.invalidateAll();
+        }
+    }
+
+    public static long getHitCount() {
+        return HIT_COUNT.get();
+    }
+
+    public static long getMissCount() {
+        return MISS_COUNT.get();
+    }
+
+    public static long getEvictionCount() {
+        return EVICTION_COUNT.get();
+    }
+
+    /**
+     * Get the entry count and weight of each resource cache.
+     *
+     * @return resource to {size, bytes, maxBytes, ttl}
+     */
+    public static Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> statistics = new TreeMap<>();
+        for (Map.Entry<String, ResourceCache> item : RESOURCE_CACHES.entrySet()) {
+            statistics.put(item.getKey(), item.getValue().getStatistics());
+        }
+        return statistics;
+    }
+
+    private static long getTtl(Class<? extends BaseDTO> dtoClass) {
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(dtoClass);
+        if (catResourceConfig != null && catResourceConfig.getDtoCacheTtl() != null) {
+            return catResourceConfig.getDtoCacheTtl();
+        }
+        return CoreSupportConfiguration.getDtoCacheTtl();
+    }
+
+    private static long getMaxBytes(Class<? extends BaseDTO> dtoClass) {
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(dtoClass);
+        if (catResourceConfig != null && catResourceConfig.getDtoCacheMaxBytes() != null) {
+            return catResourceConfig.getDtoCacheMaxBytes();
+        }
+        return CoreSupportConfiguration.getDtoCacheMaxBytes();
+    }
+
+    private static AtomicLong getGenerationCounter(String resource) {
+        AtomicLong generation = GENERATIONS.get(resource);
+        if (generation == null) {
+            generation = new AtomicLong();
+            AtomicLong existing = GENERATIONS.putIfAbsent(resource, generation);
+            if (existing != null) {
+                generation = existing;
+            }
+        }
+        return generation;
+    }
+
+    /**
+     * Generations only increase, their sum changes when any of them does.
+     */
+    private static long getGeneration(String resource, Set<String> expand) {
+        long generation = getGenerationCounter(resource).get();
+        for (String expandResource : expand) {
+            generation += getGenerationCounter(expandResource).get();
+        }
+        return generation;
+    }
+
+    private static ResourceCache getResourceCache(Class<? extends BaseDTO> dtoClass) {
+        String resource = ClassUtils.getResourceName(dtoClass);
+        ResourceCache resourceCache = RESOURCE_CACHES.get(resource);
+        if (resourceCache == null) {
+            resourceCache = new ResourceCache(getMaxBytes(dtoClass));
+            ResourceCache existing = RESOURCE_CACHES.putIfAbsent(resource, resourceCache);
+            if (existing != null) {
+                resourceCache = existing;
+            }
+        }
+        return resourceCache;
+    }
+
+    /**
+     * Normalize the primary key so path keys and DTO keys of the same row match.
+     *
+     * @param primaryKey
+     * @return
+     */
+    private static String getPrimaryKeyKey(Object primaryKey) {
+        return normalizeKey(primaryKey);
+    }
+
+    /**
+     * Render a key value with maps sorted and DTOs replaced by their primary keys.
+     *
+     * @param value
+     * @return
+     */
+    public static String normalizeKey(Object value) {
+        return String.valueOf(normalize(value));
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof BaseDTO) {
+            return normalize(((BaseDTO) value).getPrimaryKey());
+        } else if (value instanceof Map) {
+            Map<String, Object> sortedMap = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sortedMap.put(String.valueOf(entry.getKey()), normalize(entry.getValue()));
+            }
+            return sortedMap;
+        }
+        return value;
+    }
+
+    private static Set<String> getExpandSet(List<String> expand) {
+        return expand != null ? new TreeSet<>(expand) : Collections.<String>emptySet();
+    }
+
+    static byte[] serialize(BaseDTO dto) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(dto);
+        }
+        return bytes.toByteArray();
+    }
+
+    static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ContextObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    /**
+     * Resolves classes through the context class loader so application DTO classes are found.
+     */
+    private static final class ContextObjectInputStream extends ObjectInputStream {
+
+        private ContextObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader != null) {
+                try {
+                    return Class.forName(desc.getName(), false, classLoader);
+                } catch (ClassNotFoundException e) {
+                    // fall through to the default resolution
+                }
+            }
+            return super.resolveClass(desc);
+        }
+    }
+
+    private static final class Entry {
+
+        private final byte[] bytes;
+        private final String primaryKey;
+        private final Set<String> expand;
+        private final long expires;
+
+        private Entry(byte[] bytes, String primaryKey, Set<String> expand, long expires) {
+            this.bytes = bytes;
+            this.primaryKey = primaryKey;
+            this.expand = expand;
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Weight bounded LRU of one resource, with an index of its keys by expanded resource.
+     */
+    private static final class ResourceCache {
+
+        private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<String, Set<String>> keysByExpand = new HashMap<>();
+        private final long maxBytes;
+        private long bytes;
+
+        private ResourceCache(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        private synchronized byte[] get(String key) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() > entry.expires) {
+                remove(key);
+                EVICTION_COUNT.incrementAndGet();
+                return null;
+            }
+            return entry.bytes;
+        }
+
+        private synchronized void put(String key, Entry entry, String resource, long readGeneration) {
+            if (readGeneration != getGeneration(resource, entry.expand) || entry.bytes.length > maxBytes) {
+                return;
+            }
+            remove(key);
+            entries.put(key, entry);
+            bytes += entry.bytes.length;
+            for (String expandResource : entry.expand) {
+                Set<String> keys = keysByExpand.get(expandResource);
+                if (keys == null) {
+                    keys = new HashSet<>();
+                    keysByExpand.put(expandResource, keys);
+                }
+                keys.add(key);
+            }
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Entry> eldest = iterator.next();
+                iterator.remove();
+                unindex(eldest.getKey(), eldest.getValue());
+                EVICTION_COUNT.incrementAndGet();
+            }
+        }
+
+        /**
+         * Remove the entries for the primary key.
+         */
+        private synchronized void invalidate(String primaryKey) {
+            List<String> keys = new ArrayList<>();
+            for (Map.Entry<String, Entry> item : entries.entrySet()) {
+                if (primaryKey.equals(item.getValue().primaryKey)) {
+                    keys.add(item.getKey());
+                }
+            }
+            for (String key : keys) {
+                remove(key);
+            }
+        }
+
+        /**
+         * Remove the entries expanded with the resource.
+         */
+        private synchronized void invalidateExpanded(String expandResource) {
+            Set<String> keys = keysByExpand.get(expandResource);
+            if (keys != null) {
+                for (String key : new ArrayList<>(keys)) {
+                    remove(key);
+                }
+            }
+        }
+
+        private synchronized void invalidateAll() {
+            entries.clear();
+            keysByExpand.clear();
+            bytes = 0;
+        }
+
+        private void remove(String key) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                unindex(key, entry);
+            }
+        }
+
+        private void unindex(String key, Entry entry) {
+            bytes -= entry.bytes.length;
+            for (String expandResource : entry.expand) {
+                Set<String> keys = keysByExpand.get(expandResource);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        keysByExpand.remove(expandResource);
+                    }
+                }
+            }
+        }
+
+        private synchronized Map<String, Object> getStatistics() {
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("size", entries.size());
+            statistics.put("bytes", bytes);
+            statistics.put("maxBytes", maxBytes);
+            return statistics;
+        }
+    }
+}
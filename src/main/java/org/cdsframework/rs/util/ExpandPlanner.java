@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.xml.bind.annotation.XmlElementRef;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.exceptions.MtsException;
+import org.cdsframework.rs.core.support.CatResourceConfig;
+import org.cdsframework.util.LogUtils;
+
+/**
+ * Plans the expands of list queries so the children of a page are loaded with one query per child resource rather
+ * than one per parent row.
+ *
+ * A relationship is planned when the parent's CatResourceConfig has expandPlanner set, the relationship is not auto
+ * retrieved (the MGR loads those regardless of the expand) and both ends can be matched: every primary key property
+ * of the parent must be readable on the child and the parent must expose a List of the child class. The child query
+ * class of the relationship receives the primary keys of the page in EXPAND_PARENT_KEYS. Anything else is left to the
+ * MGR's per row expand.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class ExpandPlanner {
+
+    private static final LogUtils logger = LogUtils.getLogger(ExpandPlanner.class);
+    private static final Relationship UNPLANNABLE = new Relationship(null, null, null, null, null, null);
+    private static final ConcurrentMap<String, Relationship> RELATIONSHIPS = new ConcurrentHashMap<>();
+
+    /**
+     * Get the expands of the request that can be planned.
+     *
+     * @param dtoClass the parent dto class
+     * @param expand the requested child resources
+     * @return the planned relationships keyed by child resource, empty if none can be planned
+     */
+    public static Map<String, Relationship> getPlannedExpands(Class<? extends BaseDTO> dtoClass, List<String> expand) {
+        Map<String, Relationship> plannedExpands = new LinkedHashMap<>();
+        if (expand == null || expand.isEmpty()) {
+            return plannedExpands;
+        }
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(dtoClass);
+        if (catResourceConfig == null || !catResourceConfig.isExpandPlanner()) {
+            return plannedExpands;
+        }
+        for (String childResource : expand) {
+            Map<String, Object> entry = catResourceConfig.getParentChildMap().get(childResource);
+            if (entry == null || plannedExpands.containsKey(childResource)) {
+                continue;
+            }
+            String key = dtoClass.getName() + "/" + childResource;
+            Relationship relationship = RELATIONSHIPS.get(key);
+            if (relationship == null) {
+                relationship = getRelationship(dtoClass, catResourceConfig.getPrimaryKeyList(), entry);
+                RELATIONSHIPS.put(key, relationship);
+            }
+            if (relationship != UNPLANNABLE) {
+                plannedExpands.put(childResource, relationship);
+            }
+        }
+        return plannedExpands;
+    }
+
+    private static Relationship getRelationship(Class<? extends BaseDTO> dtoClass, List<String> primaryKeyList, Map<String, Object> entry) {
+        final String METHODNAME = "getRelationship ";
+        Class<? extends BaseDTO> childDtoClass = (Class<? extends BaseDTO>) entry.get("childDtoClass");
+        String childQueryClass = (String) entry.get("childQueryClass");
+        if (Boolean.TRUE.equals(entry.get("isAutoRetrieve")) || childDtoClass == null || childQueryClass == null || primaryKeyList.isEmpty()) {
+            return UNPLANNABLE;
+        }
+        try {
+            Map<String, PropertyDescriptor> parentProperties = getPropertyDescriptors(dtoClass);
+            Map<String, PropertyDescriptor> childProperties = getPropertyDescriptors(childDtoClass);
+            List<Method> parentKeyGetters = new ArrayList<>();
+            List<Method> childKeyGetters = new ArrayList<>();
+            for (String primaryKey : primaryKeyList) {
+                PropertyDescriptor parentProperty = parentProperties.get(primaryKey);
+                PropertyDescriptor childProperty = childProperties.get(primaryKey);
+                if (parentProperty == null || parentProperty.getReadMethod() == null
+                        || childProperty == null || childProperty.getReadMethod() == null) {
+                    logger.warn(METHODNAME, childDtoClass.getSimpleName(), " has no readable ", primaryKey, " to match it to ",
+                            dtoClass.getSimpleName(), ", expanding per row");
+                    return UNPLANNABLE;
+                }
+                parentKeyGetters.add(parentProperty.getReadMethod());
+                childKeyGetters.add(childProperty.getReadMethod());
+            }
+            PropertyDescriptor childListProperty = getChildListProperty(parentProperties, childDtoClass, (String) entry.get("childAttributeName"));
+            if (childListProperty == null) {
+                logger.warn(METHODNAME, dtoClass.getSimpleName(), " has no List of ", childDtoClass.getSimpleName(), ", expanding per row");
+                return UNPLANNABLE;
+            }
+            return new Relationship(childDtoClass, childQueryClass, parentKeyGetters, childKeyGetters,
+                    childListProperty.getReadMethod(), childListProperty.getWriteMethod());
+        } catch (IntrospectionException e) {
+            logger.warn(METHODNAME, "An ", e.getClass().getSimpleName(), " has occurred; Message: ", e.getMessage());
+            return UNPLANNABLE;
+        }
+    }
+
+    private static Map<String, PropertyDescriptor> getPropertyDescriptors(Class<?> cls) throws IntrospectionException {
+        Map<String, PropertyDescriptor> propertyDescriptors = new HashMap<>();
+        for (PropertyDescriptor propertyDescriptor : Introspector.getBeanInfo(cls).getPropertyDescriptors()) {
+            propertyDescriptors.put(propertyDescriptor.getName(), propertyDescriptor);
+        }
+        return propertyDescriptors;
+    }
+
+    /**
+     * Find the parent's List property of the child class, preferring the one named childAttributeName.
+     */
+    private static PropertyDescriptor getChildListProperty(Map<String, PropertyDescriptor> parentProperties, Class<?> childDtoClass, String childAttributeName) {
+        PropertyDescriptor result = null;
+        for (PropertyDescriptor propertyDescriptor : parentProperties.values()) {
+            Method readMethod = propertyDescriptor.getReadMethod();
+            if (readMethod == null || readMethod.getReturnType() != List.class
+                    || !(readMethod.getGenericReturnType() instanceof ParameterizedType)) {
+                continue;
+            }
+            Type[] actualTypeArguments = ((ParameterizedType) readMethod.getGenericReturnType()).getActualTypeArguments();
+            if (actualTypeArguments.length > 0 && actualTypeArguments[0] == childDtoClass) {
+                XmlElementRef xmlElementRef = readMethod.getAnnotation(XmlElementRef.class);
+                if (xmlElementRef != null && xmlElementRef.name().equals(childAttributeName)) {
+                    return propertyDescriptor;
+                }
+                if (result == null) {
+                    result = propertyDescriptor;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * A plannable parent child relationship.
+     */
+    public static class Relationship {
+
+        private final Class<? extends BaseDTO> childDtoClass;
+        private final String childQueryClass;
+        private final List<Method> parentKeyGetters;
+        private final List<Method> childKeyGetters;
+        private final Method childListGetter;
+        private final Method childListSetter;
+
+        private Relationship(Class<? extends BaseDTO> childDtoClass, String childQueryClass, List<Method> parentKeyGetters,
+                List<Method> childKeyGetters, Method childListGetter, Method childListSetter) {
+            this.childDtoClass = childDtoClass;
+            this.childQueryClass = childQueryClass;
+            this.parentKeyGetters = parentKeyGetters;
+            this.childKeyGetters = childKeyGetters;
+            this.childListGetter = childListGetter;
+            this.childListSetter = childListSetter;
+        }
+
+        /**
+         * Get the value of childDtoClass
+         *
+         * @return the value of childDtoClass
+         */
+        public Class<? extends BaseDTO> getChildDtoClass() {
+            return childDtoClass;
+        }
+
+        /**
+         * Get the value of childQueryClass
+         *
+         * @return the value of childQueryClass
+         */
+        public String getChildQueryClass() {
+            return childQueryClass;
+        }
+
+        /**
+         * Add the children to the lists of the parents they reference, in query order. A parent without children is
+         * given an empty list, as the MGR's per row expand does.
+         *
+         * @param parentDTOs
+         * @param childDTOs
+         * @throws MtsException
+         */
+        public void stitch(List<? extends BaseDTO> parentDTOs, List<? extends BaseDTO> childDTOs) throws MtsException {
+            try {
+                Map<String, List<BaseDTO>> childrenByParentKey = new HashMap<>();
+                if (childDTOs != null) {
+                    for (BaseDTO childDTO : childDTOs) {
+                        String parentKey = getKey(childDTO, childKeyGetters);
+                        List<BaseDTO> children = childrenByParentKey.get(parentKey);
+                        if (children == null) {
+                            children = new ArrayList<>();
+                            childrenByParentKey.put(parentKey, children);
+                        }
+                        children.add(childDTO);
+                    }
+                }
+                for (BaseDTO parentDTO : parentDTOs) {
+                    List<BaseDTO> children = childrenByParentKey.get(getKey(parentDTO, parentKeyGetters));
+                    if (children == null) {
+                        children = new ArrayList<>();
+                    }
+                    List<BaseDTO> childList = (List<BaseDTO>) childListGetter.invoke(parentDTO);
+                    if (childList == null && childListSetter != null) {
+                        childListSetter.invoke(parentDTO, new ArrayList<>(children));
+                    } else if (childList != null) {
+                        childList.addAll(children);
+                    }
+                }
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+            }
+        }
+
+        private static String getKey(BaseDTO dto, List<Method> keyGetters) throws IllegalAccessException, InvocationTargetException {
+            List<Object> values = new ArrayList<>(keyGetters.size());
+            for (Method keyGetter : keyGetters) {
+                values.add(keyGetter.invoke(dto));
+            }
+            return DtoCache.normalizeKey(values);
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import javax.xml.stream.XMLEventFactory;
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLEventWriter;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+
+/**
+ * Reads an uploaded import file incrementally and splits it into batches of records, each batch is a self contained
+ * payload in the original format.
+ *
+ * csv: one record per line (quoted fields may span lines), the header line is repeated at the top of every batch.
+ * xml: the children of the root element are the records, each batch is wrapped in a copy of the root element.
+ *
+ * @author HLN Consulting, LLC
+ */
+public abstract class ImportBatchReader implements Closeable {
+
+    public static final String CSV = "csv";
+    public static final String XML = "xml";
+
+    protected final int batchSize;
+    private int recordCount;
+
+    protected ImportBatchReader(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Get a reader for the format.
+     *
+     * @param in
+     * @param format csv or xml
+     * @param batchSize records per batch
+     * @param header does the csv start with a header line
+     * @return
+     * @throws IOException
+     */
+    public static ImportBatchReader newImportBatchReader(InputStream in, String format, int batchSize, boolean header) throws IOException {
+        if (XML.equalsIgnoreCase(format)) {
+            return new XmlImportBatchReader(in, batchSize);
+        }
+        return new CsvImportBatchReader(in, batchSize, header);
+    }
+
+    /**
+     * Read the next batch.
+     *
+     * @return the batch payload or null when the input is exhausted
+     * @throws IOException
+     */
+    public abstract String nextBatch() throws IOException;
+
+    /**
+     * Get the number of records in the last batch.
+     *
+     * @return
+     */
+    public int getRecordCount() {
+        return recordCount;
+    }
+
+    protected void setRecordCount(int recordCount) {
+        this.recordCount = recordCount;
+    }
+
+    private static final class CsvImportBatchReader extends ImportBatchReader {
+
+        private final BufferedReader reader;
+        private final String header;
+
+        private CsvImportBatchReader(InputStream in, int batchSize, boolean header) throws IOException {
+            super(batchSize);
+            this.reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            this.header = header ? nextRecord() : null;
+        }
+
+        @Override
+        public String nextBatch() throws IOException {
+            StringBuilder batch = new StringBuilder();
+            if (header != null) {
+                batch.append(header).append('\n');
+            }
+            int records = 0;
+            String record;
+            while (records < batchSize && (record = nextRecord()) != null) {
+                if (!record.isEmpty()) {
+                    batch.append(record).append('\n');
+                    records++;
+                }
+            }
+            setRecordCount(records);
+            return records > 0 ? batch.toString() : null;
+        }
+
+        /**
+         * Read a record, continuing across lines while a quoted field is open.
+         */
+        private String nextRecord() throws IOException {
+            String line = reader.readLine();
+            if (line == null) {
+                return null;
+            }
+            StringBuilder record = new StringBuilder(line);
+            boolean quoted = isQuoteOpen(line, false);
+            while (quoted && (line = reader.readLine()) != null) {
+                record.append('\n').append(line);
+                quoted = isQuoteOpen(line, quoted);
+            }
+            return record.toString();
+        }
+
+        private static boolean isQuoteOpen(String line, boolean quoted) {
+            for (int i = 0; i < line.length(); i++) {
+                if (line.charAt(i) == '"') {
+                    quoted = !quoted;
+                }
+            }
+            return quoted;
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class XmlImportBatchReader extends ImportBatchReader {
+
+        private static final XMLInputFactory XML_INPUT_FACTORY = newXMLInputFactory();
+        private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+        private static final XMLEventFactory XML_EVENT_FACTORY = XMLEventFactory.newInstance();
+        private final InputStream in;
+        private final XMLEventReader reader;
+        private StartElement root;
+        private boolean exhausted;
+
+        private XmlImportBatchReader(InputStream in, int batchSize) throws IOException {
+            super(batchSize);
+            this.in = in;
+            try {
+                this.reader = XML_INPUT_FACTORY.createXMLEventReader(in, StandardCharsets.UTF_8.name());
+                while (root == null && reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement()) {
+                        root = event.asStartElement();
+                    }
+                }
+            } catch (XMLStreamException e) {
+                throw new IOException("Unable to parse the import payload: " + e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public String nextBatch() throws IOException {
+            if (root == null || exhausted) {
+                return null;
+            }
+            try {
+                StringWriter batch = new StringWriter();
+                XMLEventWriter writer = XML_OUTPUT_FACTORY.createXMLEventWriter(batch);
+                writer.add(XML_EVENT_FACTORY.createStartDocument(StandardCharsets.UTF_8.name()));
+                writer.add(root);
+                int records = 0;
+                while (records < batchSize && reader.hasNext()) {
+                    XMLEvent event = reader.nextEvent();
+                    if (event.isStartElement()) {
+                        copyElement(event, writer);
+                        records++;
+                    } else if (event.isEndElement()) {
+                        // end of the root element
+                        exhausted = true;
+                        break;
+                    }
+                }
+                writer.add(XML_EVENT_FACTORY.createEndElement(root.getName(), null));
+                writer.add(XML_EVENT_FACTORY.createEndDocument());
+                writer.close();
+                setRecordCount(records);
+                return records > 0 ? batch.toString() : null;
+            } catch (XMLStreamException e) {
+                throw new IOException("Unable to parse the import payload: " + e.getMessage(), e);
+            }
+        }
+
+        private void copyElement(XMLEvent startElement, XMLEventWriter writer) throws XMLStreamException {
+            writer.add(startElement);
+            int depth = 1;
+            while (depth > 0 && reader.hasNext()) {
+                XMLEvent event = reader.nextEvent();
+                if (event.isStartElement()) {
+                    depth++;
+                } else if (event.isEndElement()) {
+                    depth--;
+                }
+                writer.add(event);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                reader.close();
+            } catch (XMLStreamException e) {
+                throw new IOException(e);
+            } finally {
+                in.close();
+            }
+        }
+
+        private static XMLInputFactory newXMLInputFactory() {
+            XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+            // uploaded content, no DTDs or external entities
+            xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+            xmlInputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+            return xmlInputFactory;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.AnnotationIntrospector;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.module.jaxb.JaxbAnnotationIntrospector;
+import java.io.IOException;
+import java.io.OutputStream;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.ContextResolver;
+import javax.ws.rs.ext.Providers;
+import org.cdsframework.rs.support.CoreConfiguration;
+
+/**
+ * Jackson helpers for responses that are serialized by the RS tier itself rather than by the Jersey JSON provider.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class JsonStreamingUtils {
+
+    private static final ObjectMapper DEFAULT_OBJECT_MAPPER = newObjectMapper();
+
+    /**
+     * Get the ObjectMapper the application registered through a ContextResolver, falling back to a mapper configured
+     * like the Jersey Jackson provider (Jackson then JAXB annotations, CoreConfiguration json include).
+     *
+     * @param providers may be null
+     * @param type
+     * @return
+     */
+    public static ObjectMapper getObjectMapper(Providers providers, Class<?> type) {
+        if (providers != null) {
+            ContextResolver<ObjectMapper> contextResolver = providers.getContextResolver(ObjectMapper.class, MediaType.APPLICATION_JSON_TYPE);
+            if (contextResolver != null) {
+                ObjectMapper objectMapper = contextResolver.getContext(type);
+                if (objectMapper != null) {
+                    return objectMapper;
+                }
+            }
+        }
+        return DEFAULT_OBJECT_MAPPER;
+    }
+
+    /**
+     * Get a writer suited to writing many values to a single generator, values are not flushed individually.
+     *
+     * @param providers may be null
+     * @param type
+     * @return
+     */
+    public static ObjectWriter getStreamingWriter(Providers providers, Class<?> type) {
+        return getObjectMapper(providers, type).writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Create a UTF-8 generator on the response stream. Closing the generator flushes it but leaves the response
+     * stream open for the container. Open arrays/objects are not auto closed so a failure part way through leaves
+     * the client with invalid rather than silently truncated JSON.
+     *
+     * @param objectWriter
+     * @param outputStream
+     * @return
+     * @throws IOException
+     */
+    public static JsonGenerator createGenerator(ObjectWriter objectWriter, OutputStream outputStream) throws IOException {
+        JsonGenerator generator = objectWriter.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+        return generator;
+    }
+
+    private static ObjectMapper newObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setAnnotationIntrospector(AnnotationIntrospector.pair(
+                new JacksonAnnotationIntrospector(),
+                new JaxbAnnotationIntrospector(objectMapper.getTypeFactory())));
+        JsonInclude.Include jsonInclude = CoreConfiguration.getJsonInclude();
+        if (jsonInclude != null) {
+            objectMapper.setSerializationInclusion(jsonInclude);
+        }
+        return objectMapper;
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.bind.DatatypeConverter;
+import org.apache.commons.beanutils.PropertyUtils;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.exceptions.MtsException;
+import org.cdsframework.exceptions.NotFoundException;
+import org.cdsframework.exceptions.ValidationException;
+import org.cdsframework.rs.core.support.CatResourceConfig;
+import org.cdsframework.util.DTOUtils;
+import org.cdsframework.util.ObjectUtils;
+import org.cdsframework.util.StringUtils;
+import org.cdsframework.util.support.CoreConstants;
+
+/**
+ * Keyset (seek) pagination cursors.
+ *
+ * A cursor is the base64url encoded JSON of the sort order it was produced for and the last row's value for each
+ * sort field. The sort order is the requested SORT_FIELD/SORT_ORDER, or the resource's default sort order
+ * (CatResourceConfig.getDefaultSortOrderList), followed by the primary key so it is unique.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class KeysetCursorUtils {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String SORT_ORDER = "s";
+    private static final String VALUES = "v";
+
+    /**
+     * Get the keyset sort order for the query: field name to asc/desc.
+     *
+     * @param dtoClass
+     * @param queryMap
+     * @return
+     * @throws ValidationException if the requested sort field is not a property of the dto
+     */
+    public static Map<String, String> getSortOrder(Class<? extends BaseDTO> dtoClass, Map<String, Object> queryMap)
+            throws ValidationException {
+        Map<String, String> sortOrder = new LinkedHashMap<>();
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(dtoClass);
+        String sortField = ObjectUtils.objectToString(queryMap.get(CoreConstants.SORT_FIELD));
+        if (!StringUtils.isEmpty(sortField)) {
+            if (!isReadable(dtoClass, sortField)) {
+                throw new ValidationException("Invalid sort field: " + sortField);
+            }
+            sortOrder.put(sortField, getDirection(queryMap.get(CoreConstants.SORT_ORDER)));
+        } else if (catResourceConfig != null) {
+            for (Map.Entry<String, Map<String, Object>> entry : catResourceConfig.getDefaultSortOrderList().entrySet()) {
+                sortOrder.put(entry.getKey(), getDirection(entry.getValue().get("direction")));
+            }
+        }
+        if (catResourceConfig != null) {
+            for (String primaryKey : catResourceConfig.getPrimaryKeyList()) {
+                if (!sortOrder.containsKey(primaryKey)) {
+                    sortOrder.put(primaryKey, "asc");
+                }
+            }
+        } else {
+            for (Field field : DTOUtils.getPrimaryKeyFields(dtoClass)) {
+                if (!sortOrder.containsKey(field.getName())) {
+                    sortOrder.put(field.getName(), "asc");
+                }
+            }
+        }
+        return sortOrder;
+    }
+
+    /**
+     * Decode a cursor into the values of the last row, converted to the field types of the dto.
+     *
+     * @param cursor
+     * @param sortOrder the current sort order, the cursor must have been produced for it
+     * @param queryDTO
+     * @return field name to value, in sort order
+     * @throws ValidationException if the cursor is malformed or was produced for a different sort order
+     * @throws MtsException
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> decode(String cursor, Map<String, String> sortOrder, BaseDTO queryDTO)
+            throws ValidationException, MtsException {
+        Map<String, Object> cursorMap;
+        try {
+            byte[] json = DatatypeConverter.parseBase64Binary(cursor.replace('-', '+').replace('_', '/'));
+            cursorMap = OBJECT_MAPPER.readValue(json, new TypeReference<LinkedHashMap<String, Object>>() {
+            });
+        } catch (IOException | RuntimeException e) {
+            throw new ValidationException("Invalid cursor: " + cursor);
+        }
+        if (!sortOrder.equals(cursorMap.get(SORT_ORDER)) || !(cursorMap.get(VALUES) instanceof Map)) {
+            throw new ValidationException("The cursor does not match the sort order: " + sortOrder.keySet());
+        }
+        Map<String, Object> cursorValues = (Map<String, Object>) cursorMap.get(VALUES);
+        Map<String, Object> values = new LinkedHashMap<>();
+        QueryMapBinder<? extends BaseDTO> queryMapBinder = QueryMapBinder.getQueryMapBinder(queryDTO.getClass());
+        for (String fieldName : sortOrder.keySet()) {
+            Object value = cursorValues.get(fieldName);
+            QueryMapBinder.FieldBinding fieldBinding = queryMapBinder.getFieldBinding(fieldName);
+            if (value != null && fieldBinding != null) {
+                if (Date.class.isAssignableFrom(fieldBinding.getField().getType()) && value instanceof Number) {
+                    value = new Date(((Number) value).longValue());
+                } else {
+                    try {
+                        value = fieldBinding.getDataValue(value, queryDTO);
+                    } catch (NotFoundException e) {
+                        throw new ValidationException("Invalid cursor value for " + fieldName + ": " + value);
+                    } catch (IllegalAccessException | InvocationTargetException | InstantiationException e) {
+                        throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+                    }
+                }
+            }
+            values.put(fieldName, value);
+        }
+        return values;
+    }
+
+    /**
+     * Get the cursor of the page following the result, from its last row.
+     *
+     * @param resultDTOs
+     * @param sortOrder
+     * @param pageSize the requested page size (LAZY_PAGE_SIZE)
+     * @return the cursor or null when the result is the last page
+     * @throws MtsException
+     */
+    public static String getNextCursor(List<? extends BaseDTO> resultDTOs, Map<String, String> sortOrder, Integer pageSize)
+            throws MtsException {
+        if (resultDTOs == null || resultDTOs.isEmpty() || pageSize == null || resultDTOs.size() < pageSize) {
+            return null;
+        }
+        BaseDTO lastDTO = resultDTOs.get(resultDTOs.size() - 1);
+        Map<String, Object> values = new LinkedHashMap<>();
+        try {
+            for (String fieldName : sortOrder.keySet()) {
+                Object value = PropertyUtils.getProperty(lastDTO, fieldName);
+                if (value instanceof Date) {
+                    value = ((Date) value).getTime();
+                }
+                values.put(fieldName, value);
+            }
+            Map<String, Object> cursorMap = new LinkedHashMap<>();
+            cursorMap.put(SORT_ORDER, sortOrder);
+            cursorMap.put(VALUES, values);
+            String cursor = DatatypeConverter.printBase64Binary(OBJECT_MAPPER.writeValueAsString(cursorMap).getBytes(StandardCharsets.UTF_8));
+            return cursor.replace('+', '-').replace('/', '_');
+        } catch (IOException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isReadable(Class<? extends BaseDTO> dtoClass, String fieldName) {
+        for (PropertyDescriptor propertyDescriptor : PropertyUtils.getPropertyDescriptors(dtoClass)) {
+            if (propertyDescriptor.getName().equals(fieldName)) {
+                return propertyDescriptor.getReadMethod() != null;
+            }
+        }
+        return false;
+    }
+
+    private static String getDirection(Object direction) {
+        return "desc".equalsIgnoreCase(ObjectUtils.objectToString(direction)) ? "desc" : "asc";
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, thread safe, least recently used cache with hit/miss/eviction counters and an optional time to live.
+ *
+ * @author HLN Consulting, LLC
+ * @param <K>
+ * @param <V>
+ */
+public class LruCache<K, V> {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<K, CacheEntry<V>> cacheMap;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public LruCache(final int maxEntries) {
+        this(maxEntries, 0);
+    }
+
+    /**
+     * @param maxEntries maximum number of entries, 0 disables the cache
+     * @param ttlMillis time to live of an entry in milliseconds, 0 never expires
+     */
+    public LruCache(final int maxEntries, long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.cacheMap = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 3164589921048335572L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, CacheEntry<V>> eldest) {
+                boolean evict = size() > maxEntries;
+                if (evict) {
+                    evictionCount.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    /**
+     * Get a cached value, marking it as most recently used.
+     *
+     * @param key
+     * @return the value or null on a miss or if the entry has expired
+     */
+    public V get(K key) {
+        V value = null;
+        synchronized (cacheMap) {
+            CacheEntry<V> cacheEntry = cacheMap.get(key);
+            if (cacheEntry != null) {
+                if (cacheEntry.isExpired()) {
+                    cacheMap.remove(key);
+                } else {
+                    value = cacheEntry.value;
+                }
+            }
+        }
+        if (value != null) {
+            hitCount.incrementAndGet();
+        } else {
+            missCount.incrementAndGet();
+        }
+        return value;
+    }
+
+    public void put(K key, V value) {
+        if (maxEntries > 0 && value != null) {
+            CacheEntry<V> cacheEntry = new CacheEntry<>(value, ttlMillis > 0 ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE);
+            synchronized (cacheMap) {
+                cacheMap.put(key, cacheEntry);
+            }
+        }
+    }
+
+    public V remove(K key) {
+        CacheEntry<V> cacheEntry;
+        synchronized (cacheMap) {
+            cacheEntry = cacheMap.remove(key);
+        }
+        return cacheEntry != null ? cacheEntry.value : null;
+    }
+
+    public void clear() {
+        synchronized (cacheMap) {
+            cacheMap.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cacheMap) {
+            return cacheMap.size();
+        }
+    }
+
+    public List<K> keys() {
+        synchronized (cacheMap) {
+            return new ArrayList<>(cacheMap.keySet());
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "LruCache{" + "size=" + size() + ", maxEntries=" + maxEntries + ", ttlMillis=" + ttlMillis + ", hitCount=" + hitCount
+                + ", missCount=" + missCount + ", evictionCount=" + evictionCount + '}';
+    }
+
+    private static final class CacheEntry<V> {
+
+        private final V value;
+        private final long expires;
+
+        private CacheEntry(V value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+
+        private boolean isExpired() {
+            return System.currentTimeMillis() >= expires;
+        }
+    }
+}
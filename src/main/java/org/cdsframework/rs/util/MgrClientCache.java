@@ -0,0 +1,289 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.ConnectException;
+import java.rmi.RemoteException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ejb.NoSuchEJBException;
+import org.cdsframework.client.MtsMGRClient;
+import org.cdsframework.ejb.local.GeneralMGRInterface;
+import org.cdsframework.ejb.local.SecurityMGRInterface;
+import org.cdsframework.exceptions.MtsException;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+import org.cdsframework.util.LogUtils;
+
+/**
+ * RS tier cache of the MGR client handles.
+ *
+ * Each handle is resolved through MtsMGRClient once and reused. Callers get a proxy over the cached handle, a call
+ * that fails because the handle is stale (the MGR node restarted or was redeployed) drops it so the next call
+ * resolves a new one, calls that never reached the MGR are retried once on the new handle. Failed lookups are retried
+ * with an exponential backoff instead of on every call.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class MgrClientCache {
+
+    private static final LogUtils logger = LogUtils.getLogger(MgrClientCache.class);
+    private static final ConcurrentMap<String, Handle<?>> HANDLES = new ConcurrentHashMap<>();
+    private static final AtomicLong LOOKUP_COUNT = new AtomicLong();
+    private static final AtomicLong LOOKUP_NANOS = new AtomicLong();
+    private static final AtomicLong FAILED_LOOKUP_COUNT = new AtomicLong();
+    private static final AtomicLong RECONNECT_COUNT = new AtomicLong();
+    private static final AtomicLong STALE_COUNT = new AtomicLong();
+
+    public static GeneralMGRInterface getGeneralMGR(final boolean remote) throws MtsException {
+        if (!CoreSupportConfiguration.isMgrClientCache()) {
+            return MtsMGRClient.getGeneralMGR(remote);
+        }
+        return getHandle(GeneralMGRInterface.class, remote, new Callable<GeneralMGRInterface>() {
+            @Override
+            public GeneralMGRInterface call() throws Exception {
+                return MtsMGRClient.getGeneralMGR(remote);
+            }
+        }).proxy;
+    }
+
+    public static SecurityMGRInterface getSecurityMGR(final boolean remote) throws MtsException {
+        if (!CoreSupportConfiguration.isMgrClientCache()) {
+            return MtsMGRClient.getSecurityMGR(remote);
+        }
+        return getHandle(SecurityMGRInterface.class, remote, new Callable<SecurityMGRInterface>() {
+            @Override
+            public SecurityMGRInterface call() throws Exception {
+                return MtsMGRClient.getSecurityMGR(remote);
+            }
+        }).proxy;
+    }
+
+    /**
+     * Drop every cached handle, the next call resolves new ones.
+     */
+    public static void invalidateAll() {
+        for (Handle<?> handle : HANDLES.values()) {
+            handle.invalidate(null);
+        }
+    }
+
+    public static long getLookupCount() {
+        return LOOKUP_COUNT.get();
+    }
+
+    /**
+     * Total time spent in MtsMGRClient lookups.
+     *
+     * @return nanoseconds
+     */
+    public static long getLookupNanos() {
+        return LOOKUP_NANOS.get();
+    }
+
+    public static long getFailedLookupCount() {
+        return FAILED_LOOKUP_COUNT.get();
+    }
+
+    /**
+     * Number of handles resolved again after a stale handle was dropped.
+     *
+     * @return
+     */
+    public static long getReconnectCount() {
+        return RECONNECT_COUNT.get();
+    }
+
+    public static long getStaleCount() {
+        return STALE_COUNT.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Handle<T> getHandle(Class<T> interfaceClass, boolean remote, Callable<T> lookup) {
+        String key = interfaceClass.getName() + (remote ? ":remote" : ":local");
+        Handle<T> handle = (Handle<T>) HANDLES.get(key);
+        if (handle == null) {
+            handle = new Handle<>(interfaceClass, lookup);
+            Handle<T> existing = (Handle<T>) HANDLES.putIfAbsent(key, handle);
+            if (existing != null) {
+                handle = existing;
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * Is the failure caused by a stale handle.
+     *
+     * @param e
+     * @return
+     */
+    private static boolean isStale(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NoSuchEJBException || cause instanceof RemoteException || cause instanceof ConnectException
+                    || isCorbaFailure(cause, "COMM_FAILURE") || isCorbaFailure(cause, "OBJECT_NOT_EXIST") || isCorbaFailure(cause, "TRANSIENT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Did the call fail before it reached the MGR, only those calls are retried.
+     *
+     * @param e
+     * @return
+     */
+    private static boolean isNotReached(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NoSuchEJBException || cause instanceof ConnectException || isCorbaFailure(cause, "OBJECT_NOT_EXIST")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isCorbaFailure(Throwable e, String simpleName) {
+        return e.getClass().getName().startsWith("org.omg.CORBA.") && e.getClass().getSimpleName().equals(simpleName);
+    }
+
+    private static final class Handle<T> implements InvocationHandler {
+
+        private final Class<T> interfaceClass;
+        private final Callable<T> lookup;
+        private final T proxy;
+        private T target;
+        private boolean resolved;
+        private int failures;
+        private long nextAttempt;
+        private Exception lastFailure;
+
+        private Handle(Class<T> interfaceClass, Callable<T> lookup) {
+            this.interfaceClass = interfaceClass;
+            this.lookup = lookup;
+            this.proxy = interfaceClass.cast(Proxy.newProxyInstance(interfaceClass.getClassLoader(), new Class<?>[]{interfaceClass}, this));
+        }
+
+        /**
+         * Get the cached handle, resolving it unless a failed lookup is backing off.
+         */
+        private synchronized T getTarget() throws MtsException {
+            final String METHODNAME = "getTarget ";
+            if (target != null) {
+                return target;
+            }
+            long now = System.currentTimeMillis();
+            if (now < nextAttempt) {
+                throw new MtsException("The " + interfaceClass.getSimpleName() + " is unavailable, retry in "
+                        + (nextAttempt - now) + "ms; Message: " + lastFailure.getMessage(), lastFailure);
+            }
+            long start = System.nanoTime();
+            try {
+                T result = lookup.call();
+                if (result == null) {
+                    throw new MtsException(interfaceClass.getSimpleName() + " lookup returned null");
+                }
+                target = result;
+                if (resolved) {
+                    RECONNECT_COUNT.incrementAndGet();
+                    logger.info(METHODNAME, "reconnected ", interfaceClass.getSimpleName());
+                }
+                resolved = true;
+                failures = 0;
+                nextAttempt = 0;
+                lastFailure = null;
+                return target;
+            } catch (Exception e) {
+                FAILED_LOOKUP_COUNT.incrementAndGet();
+                failures++;
+                long backoff = CoreSupportConfiguration.getMgrReconnectBackoff() << Math.min(failures - 1, 16);
+                nextAttempt = System.currentTimeMillis() + Math.min(backoff, CoreSupportConfiguration.getMgrReconnectBackoffMax());
+                lastFailure = e;
+                logger.warn(METHODNAME, interfaceClass.getSimpleName(), " lookup failed ", failures, " time(s); Message: ", e.getMessage());
+                if (e instanceof MtsException) {
+                    throw (MtsException) e;
+                }
+                throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+            } finally {
+                LOOKUP_COUNT.incrementAndGet();
+                LOOKUP_NANOS.addAndGet(System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Drop the handle if it is still the stale one, null drops any handle.
+         */
+        private synchronized void invalidate(T stale) {
+            if (stale == null || stale == target) {
+                target = null;
+                nextAttempt = 0;
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final String METHODNAME = "invoke ";
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return interfaceClass.getSimpleName() + "Proxy";
+                }
+            }
+            T current = getTarget();
+            try {
+                return method.invoke(current, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (!isStale(cause)) {
+                    throw cause;
+                }
+                STALE_COUNT.incrementAndGet();
+                logger.warn(METHODNAME, "stale ", interfaceClass.getSimpleName(), " handle on ", method.getName(), "; Message: ", cause.getMessage());
+                invalidate(current);
+                if (!isNotReached(cause)) {
+                    throw cause;
+                }
+                try {
+                    return method.invoke(getTarget(), args);
+                } catch (InvocationTargetException retry) {
+                    if (isStale(retry.getCause())) {
+                        invalidate(null);
+                    }
+                    throw retry.getCause();
+                }
+            }
+        }
+    }
+}
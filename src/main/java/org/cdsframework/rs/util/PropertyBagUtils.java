@@ -25,12 +25,18 @@
  */
 package org.cdsframework.rs.util;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.cdsframework.dto.PropertyBagDTO;
 import org.cdsframework.exceptions.MtsException;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
 import org.cdsframework.rs.utils.CommonRsUtils;
 import org.cdsframework.util.JsonUtils;
 import org.cdsframework.util.LogUtils;
+import org.cdsframework.util.ObjectUtils;
 import org.cdsframework.util.StringUtils;
 import org.cdsframework.util.support.CoreConstants;
 
@@ -40,18 +46,26 @@ import org.cdsframework.util.support.CoreConstants;
  */
 public class PropertyBagUtils {
     private static final LogUtils logger = LogUtils.getLogger(PropertyBagUtils.class.getName());
-    
+    private static final int PROPERTY_CACHE_MAX_LENGTH = CoreSupportConfiguration.getPropertyCacheMaxLength();
+    // Parsed property maps keyed by the raw encoded property string, values are immutable
+    private static final LruCache<String, Map<String, Object>> PROPERTY_MAP_CACHE = new LruCache<>(CoreSupportConfiguration.getPropertyCacheSize());
+
     public static PropertyBagDTO getJsonPropertyBagDTO(String jsonUrlEncodedString) throws MtsException {
         final String METHODNAME = "getJsonPropertyBagDTO ";
 
         PropertyBagDTO propertyBagDTO = new PropertyBagDTO();
         if (!StringUtils.isEmpty(jsonUrlEncodedString)) {
-            Map<String, Object> propertyMap = CommonRsUtils.getMapFromEncodedString(jsonUrlEncodedString);
-            propertyBagDTO.getPropertyMap().putAll(propertyMap);
-            for (Map.Entry<String, Object> entry : propertyBagDTO.getPropertyMap().entrySet()) {
-                logger.debug(METHODNAME, "entry.getKey())=", entry.getKey(),
-                        " entry.getValue()=", entry.getValue(),
-                        " entry.getValue().getClass().getSimpleName()=", entry.getValue().getClass().getSimpleName());
+            Map<String, Object> propertyMap = getPropertyMap(jsonUrlEncodedString);
+            // Copy so callers are free to modify the property bag
+            for (Map.Entry<String, Object> entry : propertyMap.entrySet()) {
+                propertyBagDTO.getPropertyMap().put(entry.getKey(), copyValue(entry.getValue()));
+            }
+            if (logger.isDebugEnabled()) {
+                for (Map.Entry<String, Object> entry : propertyBagDTO.getPropertyMap().entrySet()) {
+                    logger.debug(METHODNAME, "entry.getKey())=", entry.getKey(),
+                            " entry.getValue()=", entry.getValue(),
+                            " entry.getValue().getClass().getSimpleName()=", entry.getValue() != null ? entry.getValue().getClass().getSimpleName() : "NULL");
+                }
             }
         }
 
@@ -76,6 +90,115 @@ public class PropertyBagUtils {
         }
         
         return propertyBagDTO;
-    }    
-    
+    }
+
+    /**
+     * Get a property bag value as a Boolean (String or Boolean support).
+     *
+     * @param propertyBagDTO
+     * @param key
+     * @return false if not present
+     */
+    public static boolean getBooleanProperty(PropertyBagDTO propertyBagDTO, String key) {
+        return ObjectUtils.objectToBoolean(propertyBagDTO.get(key));
+    }
+
+    /**
+     * Get a property bag value as an int (String or Number support).
+     *
+     * @param propertyBagDTO
+     * @param key
+     * @param defaultValue returned when the value is not present
+     * @return
+     */
+    public static int getIntegerProperty(PropertyBagDTO propertyBagDTO, String key, int defaultValue) {
+        Object value = propertyBagDTO.get(key);
+        if (value == null || (value instanceof String && StringUtils.isEmpty((String) value))) {
+            return defaultValue;
+        }
+        Integer result = ObjectUtils.objectToInteger(value);
+        return result != null ? result : defaultValue;
+    }
+
+    /**
+     * Number of property strings served from the property cache.
+     *
+     * @return
+     */
+    public static long getPropertyCacheHitCount() {
+        return PROPERTY_MAP_CACHE.getHitCount();
+    }
+
+    /**
+     * Number of property strings that had to be decoded and parsed.
+     *
+     * @return
+     */
+    public static long getPropertyCacheMissCount() {
+        return PROPERTY_MAP_CACHE.getMissCount();
+    }
+
+    public static LruCache<String, Map<String, Object>> getPropertyCache() {
+        return PROPERTY_MAP_CACHE;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> getPropertyMap(String jsonUrlEncodedString) throws MtsException {
+        if (PROPERTY_MAP_CACHE.getMaxEntries() <= 0 || jsonUrlEncodedString.length() > PROPERTY_CACHE_MAX_LENGTH) {
+            return CommonRsUtils.getMapFromEncodedString(jsonUrlEncodedString);
+        }
+        Map<String, Object> propertyMap = PROPERTY_MAP_CACHE.get(jsonUrlEncodedString);
+        if (propertyMap == null) {
+            propertyMap = (Map<String, Object>) freezeValue(CommonRsUtils.getMapFromEncodedString(jsonUrlEncodedString));
+            PROPERTY_MAP_CACHE.put(jsonUrlEncodedString, propertyMap);
+        }
+        return propertyMap;
+    }
+
+    /**
+     * Deep copy a parsed JSON value into unmodifiable collections.
+     *
+     * @param value
+     * @return
+     */
+    private static Object freezeValue(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> result = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                result.put(entry.getKey(), freezeValue(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(result);
+        } else if (value instanceof List) {
+            List<Object> result = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                result.add(freezeValue(item));
+            }
+            return Collections.unmodifiableList(result);
+        }
+        return value;
+    }
+
+    /**
+     * Deep copy a parsed JSON value into modifiable collections.
+     *
+     * @param value
+     * @return
+     */
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> result = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                result.put(entry.getKey(), copyValue(entry.getValue()));
+            }
+            return result;
+        } else if (value instanceof List) {
+            List<Object> result = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                result.add(copyValue(item));
+            }
+            return result;
+        }
+        return value;
+    }
+
 }
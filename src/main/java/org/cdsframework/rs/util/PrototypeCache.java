@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+import org.cdsframework.util.LogUtils;
+
+/**
+ * RS tier cache of newInstance templates.
+ *
+ * Templates are keyed by resource, the normalized property bag and the caller's scope and held in serialized form,
+ * every get hands out a fresh deep copy. Templates expire after a time to live and can be dropped with invalidate
+ * when the defaults change, they are also dropped when the resource is written through saveMain.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class PrototypeCache {
+
+    private static final LogUtils logger = LogUtils.getLogger(PrototypeCache.class);
+    private static final long TTL_MILLIS = CoreSupportConfiguration.getPrototypeCacheTtl();
+    private static final int MAX_ENTRIES = CoreSupportConfiguration.getPrototypeCacheSize();
+    private static final ConcurrentMap<String, LruCache<String, byte[]>> RESOURCE_CACHES = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return TTL_MILLIS > 0 && MAX_ENTRIES > 0;
+    }
+
+    /**
+     * Build the cache key from the property map, its keys are sorted.
+     *
+     * @param propertyMap
+     * @param scope
+     * @return
+     */
+    public static String getKey(Map<String, Object> propertyMap, String scope) {
+        Map<String, Object> sortedMap = new TreeMap<>();
+        if (propertyMap != null) {
+            sortedMap.putAll(propertyMap);
+        }
+        return sortedMap + "\n" + scope;
+    }
+
+    /**
+     * Get a copy of the cached template.
+     *
+     * @param <T>
+     * @param dtoClass
+     * @param resource
+     * @param key
+     * @return the copy or null if it is not cached
+     */
+    public static <T extends BaseDTO> T get(Class<T> dtoClass, String resource, String key) {
+        final String METHODNAME = "get ";
+        if (!isEnabled()) {
+            return null;
+        }
+        byte[] bytes = getResourceCache(resource).get(key);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return dtoClass.cast(DtoCache.deserialize(bytes));
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            logger.warn(METHODNAME, "An ", e.getClass().getSimpleName(), " has occurred; Message: ", e.getMessage());
+            return null;
+        }
+    }
+
+    public static void put(String resource, String key, BaseDTO dto) {
+        final String METHODNAME = "put ";
+        if (isEnabled() && dto != null) {
+            try {
+                getResourceCache(resource).put(key, DtoCache.serialize(dto));
+            } catch (IOException e) {
+                if (logger.isDebugEnabled()) {
+                    logger.debug(METHODNAME, resource, " is not cacheable; Message: ", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Drop every cached template for the resource.
+     *
+     * @param resource
+     */
+    public static void invalidate(String resource) {
+        if (resource != null) {
+            LruCache<String, byte[]> resourceCache = RESOURCE_CACHES.get(resource);
+            if (resourceCache != null) {
+                resourceCache.clear();
+            }
+        }
+    }
+
+    public static void invalidateAll() {
+        for (LruCache<String, byte[]> resourceCache : RESOURCE_CACHES.values()) {
+            resourceCache.clear();
+        }
+    }
+
+    public static long getHitCount() {
+        long result = 0;
+        for (LruCache<String, byte[]> resourceCache : RESOURCE_CACHES.values()) {
+            result += resourceCache.getHitCount();
+        }
+        return result;
+    }
+
+    public static long getMissCount() {
+        long result = 0;
+        for (LruCache<String, byte[]> resourceCache : RESOURCE_CACHES.values()) {
+            result += resourceCache.getMissCount();
+        }
+        return result;
+    }
+
+    private static LruCache<String, byte[]> getResourceCache(String resource) {
+        LruCache<String, byte[]> resourceCache = RESOURCE_CACHES.get(resource);
+        if (resourceCache == null) {
+            resourceCache = new LruCache<>(MAX_ENTRIES, TTL_MILLIS);
+            LruCache<String, byte[]> existing = RESOURCE_CACHES.putIfAbsent(resource, resourceCache);
+            if (existing != null) {
+                resourceCache = existing;
+            }
+        }
+        return resourceCache;
+    }
+}
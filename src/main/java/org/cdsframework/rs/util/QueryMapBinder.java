@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.enumeration.FieldType;
+import org.cdsframework.exceptions.NotFoundException;
+import org.cdsframework.util.DTOProperty;
+import org.cdsframework.util.LogUtils;
+import org.cdsframework.util.support.CoreConstants;
+
+/**
+ * Binds query map (filter) values to the declared fields of a DTO class.
+ *
+ * The field lookup, accessibility and field type analysis is done once per DTO class and cached, so a filter key is
+ * resolved with a single map lookup. Keys that do not match a declared field are a plain miss.
+ *
+ * @author HLN Consulting, LLC
+ * @param <T>
+ */
+public class QueryMapBinder<T extends BaseDTO> {
+
+    private static final LogUtils logger = LogUtils.getLogger(QueryMapBinder.class);
+    private static final ConcurrentMap<Class<? extends BaseDTO>, QueryMapBinder<? extends BaseDTO>> QUERY_MAP_BINDERS = new ConcurrentHashMap<>();
+    private static final Set<String> PAGING_KEYS;
+
+    static {
+        // Keys used for paging, compared case insensitively
+        Set<String> pagingKeys = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        pagingKeys.add(CoreConstants.LAZY);
+        pagingKeys.add(CoreConstants.LAZY_PAGE_SIZE);
+        pagingKeys.add(CoreConstants.LAZY_ROW_OFFSET);
+        pagingKeys.add(CoreConstants.SORT_FIELD);
+        pagingKeys.add(CoreConstants.SORT_ORDER);
+        pagingKeys.add(CoreConstants.LAZY_ROWCOUNT);
+        PAGING_KEYS = Collections.unmodifiableSet(pagingKeys);
+    }
+
+    private final Class<T> dtoClass;
+    private final Map<String, FieldBinding> fieldBindings;
+
+    private QueryMapBinder(Class<T> dtoClass) {
+        final String METHODNAME = "QueryMapBinder ";
+        this.dtoClass = dtoClass;
+        Map<String, FieldBinding> bindings = new HashMap<>();
+        // Only the declared fields of the class are bound, matching Class.getDeclaredField
+        for (Field field : dtoClass.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+                continue;
+            }
+            field.setAccessible(true);
+            bindings.put(field.getName(), new FieldBinding(field));
+        }
+        this.fieldBindings = Collections.unmodifiableMap(bindings);
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "dtoClass=", dtoClass.getSimpleName(), " fieldBindings=", fieldBindings.keySet());
+        }
+    }
+
+    /**
+     * Get the cached binder for a DTO class, building it on first use.
+     *
+     * @param <T>
+     * @param dtoClass
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends BaseDTO> QueryMapBinder<T> getQueryMapBinder(Class<T> dtoClass) {
+        QueryMapBinder<T> queryMapBinder = (QueryMapBinder<T>) QUERY_MAP_BINDERS.get(dtoClass);
+        if (queryMapBinder == null) {
+            queryMapBinder = new QueryMapBinder<>(dtoClass);
+            QueryMapBinder<T> existing = (QueryMapBinder<T>) QUERY_MAP_BINDERS.putIfAbsent(dtoClass, queryMapBinder);
+            if (existing != null) {
+                queryMapBinder = existing;
+            }
+        }
+        return queryMapBinder;
+    }
+
+    /**
+     * Is the key one of the paging/sorting keys that never maps to a DTO field.
+     *
+     * @param key
+     * @return
+     */
+    public static boolean isPagingKey(String key) {
+        return PAGING_KEYS.contains(key);
+    }
+
+    public Class<T> getDtoClass() {
+        return dtoClass;
+    }
+
+    /**
+     * Get the binding for a query map key.
+     *
+     * @param key
+     * @return the binding or null if the key does not match a declared field
+     */
+    public FieldBinding getFieldBinding(String key) {
+        return fieldBindings.get(key);
+    }
+
+    /**
+     * Precompiled setter and value coercer for a single DTO field.
+     */
+    public static final class FieldBinding {
+
+        private final Field field;
+        private final Class<?> fieldClass;
+        private final boolean enumeration;
+
+        private FieldBinding(Field field) {
+            this.field = field;
+            this.fieldClass = field.getType();
+            this.enumeration = FieldType.getFieldType(fieldClass) == FieldType.Enumeration;
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        /**
+         * Convert the query map value to the field's data type. Values that are already of the field's type are
+         * used as is, everything else goes through DTOProperty.getDataValue.
+         *
+         * @param value
+         * @param queryDTO
+         * @return
+         * @throws IllegalAccessException
+         * @throws InvocationTargetException
+         * @throws InstantiationException
+         * @throws NotFoundException
+         */
+        public Object getDataValue(Object value, BaseDTO queryDTO)
+                throws IllegalAccessException, InvocationTargetException, InstantiationException, NotFoundException {
+            if (value != null && value.getClass() == fieldClass) {
+                return value;
+            }
+            return DTOProperty.getDataValue(field, value, queryDTO);
+        }
+
+        /**
+         * Convert the query map value and apply it to the field on the DTO (Handles all FieldTypes except BaseDTO)
+         *
+         * @param queryDTO
+         * @param value
+         * @return the converted data value
+         * @throws IllegalAccessException
+         * @throws InvocationTargetException
+         * @throws InstantiationException
+         * @throws NotFoundException
+         */
+        public Object bind(BaseDTO queryDTO, Object value)
+                throws IllegalAccessException, InvocationTargetException, InstantiationException, NotFoundException {
+            Object dataValue = getDataValue(value, queryDTO);
+            field.set(queryDTO, dataValue);
+            return dataValue;
+        }
+
+        /**
+         * Should the converted data value be applied back on to the query map.
+         *
+         * Enums and Booleans are left as supplied since the DAO's were coded to deal with Strings for Enums/Booleans.
+         *
+         * @param dataValue
+         * @return
+         */
+        public boolean isQueryMapValue(Object dataValue) {
+            return !enumeration && !(dataValue instanceof Boolean);
+        }
+    }
+}
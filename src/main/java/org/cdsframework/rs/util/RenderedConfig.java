@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+import org.cdsframework.rs.core.support.CatResourceConfig;
+
+/**
+ * A CatResourceConfig rendered once to JSON along with its gzip encoding and strong entity tags, configs only change
+ * at deploy so the config service serves these bytes as-is.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class RenderedConfig {
+
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String eTag;
+
+    private RenderedConfig(byte[] json, byte[] gzip, String eTag) {
+        this.json = json;
+        this.gzip = gzip;
+        this.eTag = eTag;
+    }
+
+    /**
+     * Render the config with the same ObjectMapper configuration as the Jersey Jackson provider.
+     *
+     * @param config
+     * @return
+     * @throws IOException
+     */
+    public static RenderedConfig render(CatResourceConfig config) throws IOException {
+        byte[] json = JsonStreamingUtils.getObjectMapper(null, CatResourceConfig.class).writeValueAsBytes(config);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, json.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(json);
+        }
+        return new RenderedConfig(json, bytes.toByteArray(), RsDigestUtils.sha256Hex(json));
+    }
+
+    /**
+     * Get the value of json
+     *
+     * @return the value of json
+     */
+    public byte[] getJson() {
+        return json;
+    }
+
+    /**
+     * Get the value of gzip
+     *
+     * @return the gzip encoded json
+     */
+    public byte[] getGzip() {
+        return gzip;
+    }
+
+    /**
+     * Get the value of eTag
+     *
+     * @param gzipped true for the tag of the gzip encoding
+     * @return the entity tag of the encoding, the encodings are different representations so their tags differ
+     */
+    public String getETag(boolean gzipped) {
+        return gzipped ? eTag + "-gzip" : eTag;
+    }
+}
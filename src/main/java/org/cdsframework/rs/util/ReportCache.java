@@ -0,0 +1,433 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.dto.PropertyBagDTO;
+import org.cdsframework.enumeration.LogLevel;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+import org.cdsframework.util.LogUtils;
+
+/**
+ * Local disk cache of generated reports.
+ *
+ * Reports are keyed by a SHA-256 of the resource, the caller's scope and the normalized query map and property bag.
+ * Each entry carries the SHA-256 of its content as its ETag. Entries expire after the resource's time to live, are
+ * evicted least recently used once the cache exceeds its size cap and are purged when the resource is written through
+ * saveMain. Each purge bumps the resource's generation, a report generated before the write is served once but not
+ * cached when it completes after it.
+ *
+ * The index is held in memory. The cache directory (mts-rs-report-cache under reportCacheDirectory) is purged on first
+ * use so the files of earlier runs do not accumulate, instances sharing a host need their own reportCacheDirectory.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class ReportCache {
+
+    private static final LogUtils logger = LogUtils.getLogger(ReportCache.class);
+    private static final long MAX_BYTES = CoreSupportConfiguration.getReportCacheMaxBytes();
+    private static final String DIRECTORY_NAME = "mts-rs-report-cache";
+    private static final Map<String, Entry> ENTRIES = new LinkedHashMap<>(16, 0.75f, true);
+    private static final Map<String, Long> GENERATIONS = new HashMap<>();
+    private static final AtomicLong HIT_COUNT = new AtomicLong();
+    private static final AtomicLong MISS_COUNT = new AtomicLong();
+    private static long totalBytes;
+    private static File directory;
+
+    /**
+     * Build the cache key from the normalized report request.
+     *
+     * @param resource
+     * @param scope the caller's authorization scope
+     * @param queryDTO the query DTO with the filter and report parameters applied
+     * @param propertyBagDTO
+     * @return
+     */
+    public static String getKey(String resource, String scope, BaseDTO queryDTO, PropertyBagDTO propertyBagDTO) {
+        StringBuilder key = new StringBuilder();
+        key.append(resource).append('\n');
+        key.append(scope).append('\n');
+        key.append(propertyBagDTO.getQueryClass()).append('\n');
+        key.append(normalize(queryDTO.getQueryMap())).append('\n');
+        key.append(normalize(propertyBagDTO.getPropertyMap()));
+        return RsDigestUtils.sha256Hex(key.toString());
+    }
+
+    /**
+     * Get the entry, null if it is not cached or has expired.
+     *
+     * @param key
+     * @return
+     */
+    public static Entry get(String key) {
+        final String METHODNAME = "get ";
+        Entry entry;
+        synchronized (ENTRIES) {
+            entry = ENTRIES.get(key);
+            if (entry != null && (entry.isExpired() || !entry.getFile().exists())) {
+                remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            MISS_COUNT.incrementAndGet();
+        } else {
+            HIT_COUNT.incrementAndGet();
+            if (logger.isDebugEnabled()) {
+                logger.debug(METHODNAME, "hit resource=", entry.getResource(), " length=", entry.getLength());
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Get the resource's current generation, read it before generating the report and pass it to put.
+     *
+     * @param resource
+     * @return
+     */
+    public static long getGeneration(String resource) {
+        synchronized (ENTRIES) {
+            Long generation = GENERATIONS.get(resource);
+            return generation != null ? generation : 0L;
+        }
+    }
+
+    /**
+     * Write the report to the cache directory and add it to the cache. The input is closed.
+     *
+     * A report larger than the cache, or generated before the resource was last invalidated, is returned as an
+     * uncached entry, its file is removed once it has been served. The file is opened for the returned entry before it
+     * is added to the cache so a concurrent eviction can not remove it before it is served.
+     *
+     * @param key
+     * @param resource
+     * @param in
+     * @param ttlMillis
+     * @param generation the resource's generation read before the report was generated
+     * @return the entry
+     * @throws IOException
+     */
+    public static Entry put(String key, String resource, InputStream in, long ttlMillis, long generation) throws IOException {
+        final String METHODNAME = "put ";
+        long start = System.nanoTime();
+        File file = File.createTempFile("report-", ".cache", getDirectory());
+        MessageDigest messageDigest = RsDigestUtils.getSha256();
+        long length;
+        FileChannel fileChannel;
+        try {
+            try (InputStream input = in; OutputStream out = new DigestOutputStream(new FileOutputStream(file), messageDigest)) {
+                length = RsStreamUtils.copy(input, out, CoreSupportConfiguration.getReportChunkSize());
+            }
+            fileChannel = new FileInputStream(file).getChannel();
+        } catch (IOException | RuntimeException e) {
+            deleteFile(file);
+            throw e;
+        }
+        String eTag = RsDigestUtils.toHex(messageDigest.digest());
+        boolean cached = length <= MAX_BYTES;
+        long expires = System.currentTimeMillis() + ttlMillis;
+        Entry entry;
+        synchronized (ENTRIES) {
+            cached = cached && generation == getGeneration(resource);
+            // Only the returned entry holds the open file, the indexed one is opened by each hit
+            entry = new Entry(resource, file, length, eTag, expires, cached, fileChannel);
+            if (cached) {
+                remove(key);
+                ENTRIES.put(key, new Entry(resource, file, length, eTag, expires, true, null));
+                totalBytes += length;
+                evict();
+            }
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "resource=", resource, " length=", length, " cached=", cached);
+            logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
+        }
+        return entry;
+    }
+
+    /**
+     * Open the entry for serving. The file is opened on the calling thread, or was opened by put, so a concurrent
+     * eviction can not remove it from under the response. The file is copied to the response in reportChunkSize
+     * chunks.
+     *
+     * The output holds the open file until it is written or closed, the caller closes it when the response may not be
+     * written, i.e; by registering it with the request's CloseableService.
+     *
+     * @param entry
+     * @return the EntryOutput or null if the file has been evicted
+     */
+    public static EntryOutput getStreamingOutput(final Entry entry) {
+        FileChannel fileChannel = entry.takeChannel();
+        if (fileChannel == null) {
+            try {
+                fileChannel = new FileInputStream(entry.getFile()).getChannel();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return new EntryOutput(entry, fileChannel);
+    }
+
+    /**
+     * Purge the resource's reports.
+     *
+     * @param resource
+     */
+    public static void invalidate(String resource) {
+        synchronized (ENTRIES) {
+            GENERATIONS.put(resource, getGeneration(resource) + 1);
+            List<String> keys = new ArrayList<>();
+            for (Map.Entry<String, Entry> item : ENTRIES.entrySet()) {
+                if (item.getValue().getResource().equals(resource)) {
+                    keys.add(item.getKey());
+                }
+            }
+            for (String key : keys) {
+                remove(key);
+            }
+        }
+    }
+
+    public static void invalidateAll() {
+        synchronized (ENTRIES) {
+            for (Map.Entry<String, Long> generation : GENERATIONS.entrySet()) {
+                generation.setValue(generation.getValue() + 1);
+            }
+            for (String key : new ArrayList<>(ENTRIES.keySet())) {
+                remove(key);
+            }
+        }
+    }
+
+    public static long getTotalBytes() {
+        synchronized (ENTRIES) {
+            return totalBytes;
+        }
+    }
+
+    public static long getHitCount() {
+        return HIT_COUNT.get();
+    }
+
+    public static long getMissCount() {
+        return MISS_COUNT.get();
+    }
+
+    private static void remove(String key) {
+        Entry entry = ENTRIES.remove(key);
+        if (entry != null) {
+            totalBytes -= entry.getLength();
+            deleteFile(entry.getFile());
+        }
+    }
+
+    private static void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = ENTRIES.entrySet().iterator();
+        while (totalBytes > MAX_BYTES && iterator.hasNext()) {
+            Entry entry = iterator.next().getValue();
+            iterator.remove();
+            totalBytes -= entry.getLength();
+            deleteFile(entry.getFile());
+        }
+    }
+
+    private static synchronized File getDirectory() throws IOException {
+        if (directory == null || !directory.isDirectory()) {
+            String reportCacheDirectory = CoreSupportConfiguration.getReportCacheDirectory();
+            File cacheDirectory = new File(reportCacheDirectory != null ? reportCacheDirectory : System.getProperty("java.io.tmpdir"), DIRECTORY_NAME);
+            if (directory == null) {
+                // Files of an earlier run are not in the index and would never be removed
+                File[] files = cacheDirectory.listFiles();
+                if (files != null) {
+                    for (File file : files) {
+                        deleteFile(file);
+                    }
+                }
+            }
+            if (!cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+                throw new IOException("Unable to create the report cache directory: " + cacheDirectory);
+            }
+            directory = cacheDirectory;
+            logger.info("getDirectory ", "directory=", directory);
+        }
+        return directory;
+    }
+
+    /**
+     * Copy maps into sorted maps so the key does not depend on map ordering.
+     *
+     * @param value
+     * @return
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sortedMap = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sortedMap.put(String.valueOf(entry.getKey()), normalize(entry.getValue()));
+            }
+            return sortedMap;
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                list.add(normalize(item));
+            }
+            return list;
+        }
+        return value;
+    }
+
+    private static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            logger.warn("deleteFile ", "unable to delete: ", file);
+        }
+    }
+
+    /**
+     * Writes an opened entry to the response. Closing it releases the file, and removes it when the entry is not
+     * cached.
+     */
+    public static final class EntryOutput implements StreamingOutput, Closeable {
+
+        private final Entry entry;
+        private final FileChannel fileChannel;
+        private boolean closed;
+
+        private EntryOutput(Entry entry, FileChannel fileChannel) {
+            this.entry = entry;
+            this.fileChannel = fileChannel;
+        }
+
+        @Override
+        public void write(OutputStream out) throws IOException, WebApplicationException {
+            final String METHODNAME = "write ";
+            long start = System.nanoTime();
+            try {
+                long length = RsStreamUtils.copy(Channels.newInputStream(fileChannel), out, CoreSupportConfiguration.getReportChunkSize());
+                out.flush();
+                if (logger.isDebugEnabled()) {
+                    logger.debug(METHODNAME, "resource=", entry.getResource(), " length=", length);
+                }
+            } finally {
+                close();
+                logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                fileChannel.close();
+            } finally {
+                if (!entry.isCached()) {
+                    deleteFile(entry.getFile());
+                }
+            }
+        }
+    }
+
+    /**
+     * A cached report.
+     */
+    public static final class Entry {
+
+        private final String resource;
+        private final File file;
+        private final long length;
+        private final String eTag;
+        private final long expires;
+        private final boolean cached;
+        private FileChannel channel;
+
+        private Entry(String resource, File file, long length, String eTag, long expires, boolean cached, FileChannel channel) {
+            this.resource = resource;
+            this.file = file;
+            this.length = length;
+            this.eTag = eTag;
+            this.expires = expires;
+            this.cached = cached;
+            this.channel = channel;
+        }
+
+        /**
+         * Take the channel put opened for the entry it returned.
+         */
+        private synchronized FileChannel takeChannel() {
+            FileChannel result = channel;
+            channel = null;
+            return result;
+        }
+
+        public String getResource() {
+            return resource;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getLength() {
+            return length;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public boolean isCached() {
+            return cached;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() > expires;
+        }
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.cdsframework.enumeration.LogLevel;
+import org.cdsframework.rs.base.ReportJob;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+import org.cdsframework.util.LogUtils;
+
+/**
+ * Runs reports in the background on a bounded report executor so they do not hold a container thread.
+ *
+ * The report is written to a temp file which can be downloaded until the job expires, finished jobs expire after
+ * the report job time to live. Jobs are only visible to the session that submitted them.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class ReportJobManager {
+
+    private static final LogUtils logger = LogUtils.getLogger(ReportJobManager.class);
+    private static final ConcurrentMap<String, Job> JOBS = new ConcurrentHashMap<>();
+    private static ThreadPoolExecutor reportExecutor;
+
+    /**
+     * Queue the report.
+     *
+     * @param resource
+     * @param sessionId the submitting session
+     * @param filename
+     * @param reportSource produces the report content, runs on the report executor
+     * @return the job status
+     * @throws RejectedExecutionException if the report queue is full
+     */
+    public static ReportJob submit(String resource, String sessionId, String filename, Callable<InputStream> reportSource) {
+        final String METHODNAME = "submit ";
+        purgeExpired();
+        final Job job = new Job(UUID.randomUUID().toString(), resource, sessionId, filename);
+        JOBS.put(job.jobId, job);
+        try {
+            getReportExecutor().execute(new ReportRunnable(job, reportSource));
+        } catch (RejectedExecutionException e) {
+            JOBS.remove(job.jobId);
+            throw e;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "jobId=", job.jobId, " resource=", resource);
+        }
+        return job.getReportJob();
+    }
+
+    /**
+     * Get the job status.
+     *
+     * @param jobId
+     * @param sessionId
+     * @return the status or null if there is no such job for the session
+     */
+    public static ReportJob getReportJob(String jobId, String sessionId) {
+        Job job = getJob(jobId, sessionId);
+        return job != null ? job.getReportJob() : null;
+    }
+
+    /**
+     * Open the finished report.
+     *
+     * @param jobId
+     * @param sessionId
+     * @return the report content or null if there is no such job for the session or the job is not complete
+     * @throws IOException
+     */
+    public static InputStream getReportInputStream(String jobId, String sessionId) throws IOException {
+        Job job = getJob(jobId, sessionId);
+        if (job == null) {
+            return null;
+        }
+        synchronized (job) {
+            if (job.status != ReportJob.Status.COMPLETED) {
+                return null;
+            }
+            return new FileInputStream(job.file);
+        }
+    }
+
+    private static Job getJob(String jobId, String sessionId) {
+        purgeExpired();
+        Job job = jobId != null ? JOBS.get(jobId) : null;
+        if (job == null || (job.sessionId != null && !job.sessionId.equals(sessionId))) {
+            return null;
+        }
+        return job;
+    }
+
+    private static void purgeExpired() {
+        final String METHODNAME = "purgeExpired ";
+        long now = System.currentTimeMillis();
+        Iterator<Job> iterator = JOBS.values().iterator();
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            synchronized (job) {
+                if (job.expires > 0 && now > job.expires) {
+                    iterator.remove();
+                    job.deleteFile();
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(METHODNAME, "expired jobId=", job.jobId);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stop the report executor and delete the reports of every job, called when the application shuts down so a
+     * redeploy does not leak the executor's threads and the webapp classloader.
+     */
+    public static void shutdown() {
+        final String METHODNAME = "shutdown ";
+        ThreadPoolExecutor executor;
+        synchronized (ReportJobManager.class) {
+            executor = reportExecutor;
+            reportExecutor = null;
+        }
+        if (executor != null) {
+            executor.shutdownNow();
+            logger.info(METHODNAME, "reportExecutor shut down");
+        }
+        Iterator<Job> iterator = JOBS.values().iterator();
+        while (iterator.hasNext()) {
+            Job job = iterator.next();
+            synchronized (job) {
+                iterator.remove();
+                job.deleteFile();
+            }
+        }
+    }
+
+    private static synchronized ThreadPoolExecutor getReportExecutor() {
+        if (reportExecutor == null) {
+            reportExecutor = RsExecutors.newBoundedExecutor("mts-rs-report",
+                    CoreSupportConfiguration.getReportJobPoolSize(),
+                    CoreSupportConfiguration.getReportJobQueueSize());
+            // refuse rather than run a report on the container thread
+            reportExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        }
+        return reportExecutor;
+    }
+
+    /**
+     * Generates the report and writes it to the job's file.
+     */
+    private static final class ReportRunnable implements Runnable {
+
+        private final Job job;
+        private final Callable<InputStream> reportSource;
+
+        private ReportRunnable(Job job, Callable<InputStream> reportSource) {
+            this.job = job;
+            this.reportSource = reportSource;
+        }
+
+        @Override
+        public void run() {
+            final String METHODNAME = "run ";
+            long start = System.nanoTime();
+            synchronized (job) {
+                job.status = ReportJob.Status.RUNNING;
+                job.started = new Date();
+            }
+            File file = null;
+            try {
+                file = RsStreamUtils.createSpoolFile("report-job-");
+                try (InputStream in = reportSource.call(); OutputStream out = new JobOutputStream(job, new FileOutputStream(file))) {
+                    RsStreamUtils.copy(in, out, CoreSupportConfiguration.getReportChunkSize());
+                }
+                synchronized (job) {
+                    job.file = file;
+                    job.status = ReportJob.Status.COMPLETED;
+                    job.complete();
+                }
+            } catch (Exception e) {
+                logger.error(METHODNAME, "An ", e.getClass().getSimpleName(), " has occurred; jobId=", job.jobId, " Message: ", e.getMessage());
+                if (file != null) {
+                    RsStreamUtils.deleteFile(file);
+                }
+                synchronized (job) {
+                    job.status = ReportJob.Status.FAILED;
+                    job.message = "An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage();
+                    job.complete();
+                }
+            } finally {
+                logger.logDuration(LogLevel.DEBUG, METHODNAME + job.jobId + " ", start);
+            }
+        }
+    }
+
+    /**
+     * Counts the bytes written into the job's length so a running job reports its progress.
+     */
+    private static final class JobOutputStream extends FilterOutputStream {
+
+        private final Job job;
+
+        private JobOutputStream(Job job, OutputStream out) {
+            super(out);
+            this.job = job;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            synchronized (job) {
+                job.length += len;
+            }
+        }
+    }
+
+    /**
+     * Mutable job state, guarded by the job.
+     */
+    private static final class Job {
+
+        private final String jobId;
+        private final String resource;
+        private final String sessionId;
+        private final String filename;
+        private final Date submitted = new Date();
+        private ReportJob.Status status = ReportJob.Status.PENDING;
+        private Date started;
+        private Date completed;
+        private long length;
+        private String message;
+        private File file;
+        private long expires;
+
+        private Job(String jobId, String resource, String sessionId, String filename) {
+            this.jobId = jobId;
+            this.resource = resource;
+            this.sessionId = sessionId;
+            this.filename = filename;
+        }
+
+        private void complete() {
+            completed = new Date();
+            expires = System.currentTimeMillis() + CoreSupportConfiguration.getReportJobTtl();
+        }
+
+        private void deleteFile() {
+            if (file != null && file.exists() && !file.delete()) {
+                logger.warn("deleteFile ", "unable to delete: ", file);
+            }
+        }
+
+        private synchronized ReportJob getReportJob() {
+            ReportJob reportJob = new ReportJob();
+            reportJob.setJobId(jobId);
+            reportJob.setResource(resource);
+            reportJob.setStatus(status);
+            reportJob.setProgress(status == ReportJob.Status.COMPLETED ? 100 : 0);
+            reportJob.setLength(length);
+            reportJob.setFilename(filename);
+            reportJob.setMessage(message);
+            reportJob.setSubmitted(submitted);
+            reportJob.setStarted(started);
+            reportJob.setCompleted(completed);
+            return reportJob;
+        }
+    }
+}
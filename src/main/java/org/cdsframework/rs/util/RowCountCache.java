@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+
+/**
+ * RS tier cache of data table row counts (recordsTotal/recordsFiltered).
+ *
+ * Counts are keyed by resource, query class, the normalized filter and the caller's scope, expire after a time to
+ * live and are invalidated when the resource is written through saveMain. Each invalidation bumps the resource's
+ * generation, a count read before the write is not cached when its query completes after it.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class RowCountCache {
+
+    private static final long TTL_MILLIS = CoreSupportConfiguration.getRowCountCacheTtl();
+    private static final int MAX_ENTRIES = CoreSupportConfiguration.getRowCountCacheSize();
+    private static final ConcurrentMap<String, ResourceCache> RESOURCE_CACHES = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return TTL_MILLIS > 0 && MAX_ENTRIES > 0;
+    }
+
+    /**
+     * Build the cache key from the query class, query map and scope. Paging and sorting keys do not affect the count
+     * and are left out, the remaining keys are sorted.
+     *
+     * @param queryClass
+     * @param queryMap
+     * @param scope the scope the count may be shared within, i.e; the session
+     * @return
+     */
+    public static String getKey(String queryClass, Map<String, Object> queryMap, String scope) {
+        Map<String, Object> filterMap = new TreeMap<>();
+        if (queryMap != null) {
+            for (Map.Entry<String, Object> entry : queryMap.entrySet()) {
+                if (!QueryMapBinder.isPagingKey(entry.getKey())) {
+                    filterMap.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        return scope + "/" + queryClass + filterMap;
+    }
+
+    public static Long get(String resource, String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+        return getResourceCache(resource).cache.get(key);
+    }
+
+    /**
+     * Get the resource's current generation, read it before issuing the count query and pass it to put.
+     *
+     * @param resource
+     * @return
+     */
+    public static long getGeneration(String resource) {
+        return getResourceCache(resource).generation.get();
+    }
+
+    /**
+     * Cache the count unless the resource was invalidated since the generation was read.
+     *
+     * @param resource
+     * @param key
+     * @param rowCount
+     * @param generation
+     */
+    public static void put(String resource, String key, Long rowCount, long generation) {
+        if (isEnabled()) {
+            getResourceCache(resource).put(key, rowCount, generation);
+        }
+    }
+
+    /**
+     * Drop every cached count for the resource.
+     *
+     * @param resource
+     */
+    public static void invalidate(String resource) {
+        if (resource != null) {
+            ResourceCache resourceCache = RESOURCE_CACHES.get(resource);
+            if (resourceCache != null) {
+                resourceCache.clear();
+            }
+        }
+    }
+
+    public static void invalidateAll() {
+        for (ResourceCache resourceCache : RESOURCE_CACHES.values()) {
+            resourceCache.clear();
+        }
+    }
+
+    public static long getHitCount() {
+        long result = 0;
+        for (ResourceCache resourceCache : RESOURCE_CACHES.values()) {
+            result += resourceCache.cache.getHitCount();
+        }
+        return result;
+    }
+
+    public static long getMissCount() {
+        long result = 0;
+        for (ResourceCache resourceCache : RESOURCE_CACHES.values()) {
+            result += resourceCache.cache.getMissCount();
+        }
+        return result;
+    }
+
+    private static ResourceCache getResourceCache(String resource) {
+        ResourceCache resourceCache = RESOURCE_CACHES.get(resource);
+        if (resourceCache == null) {
+            resourceCache = new ResourceCache();
+            ResourceCache existing = RESOURCE_CACHES.putIfAbsent(resource, resourceCache);
+            if (existing != null) {
+                resourceCache = existing;
+            }
+        }
+        return resourceCache;
+    }
+
+    /**
+     * The counts of one resource along with its write generation.
+     */
+    private static class ResourceCache {
+
+        private final LruCache<String, Long> cache = new LruCache<>(MAX_ENTRIES, TTL_MILLIS);
+        private final AtomicLong generation = new AtomicLong();
+
+        private synchronized void put(String key, Long rowCount, long readGeneration) {
+            if (readGeneration == generation.get()) {
+                cache.put(key, rowCount);
+            }
+        }
+
+        private synchronized void clear() {
+            generation.incrementAndGet();
+            cache.clear();
+        }
+    }
+}
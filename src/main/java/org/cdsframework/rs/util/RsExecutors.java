@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import org.cdsframework.exceptions.AuthenticationException;
+import org.cdsframework.exceptions.AuthorizationException;
+import org.cdsframework.exceptions.ConstraintViolationException;
+import org.cdsframework.exceptions.MtsException;
+import org.cdsframework.exceptions.NotFoundException;
+import org.cdsframework.exceptions.ValidationException;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+import org.cdsframework.util.LogUtils;
+
+/**
+ * Executor used to issue independent MGR calls of a single request concurrently.
+ *
+ * The container's default ManagedExecutorService is used when available so container context propagates to the
+ * worker thread, otherwise a bounded private pool. When the pool is saturated, or parallel queries are disabled, the
+ * task runs on the calling thread.
+ *
+ * Also holds the executor the async resources hand their MGR calls to (getAsyncExecutor).
+ *
+ * @author HLN Consulting, LLC
+ */
+public class RsExecutors {
+
+    private static final LogUtils logger = LogUtils.getLogger(RsExecutors.class);
+    private static final String DEFAULT_MANAGED_EXECUTOR_SERVICE = "java:comp/DefaultManagedExecutorService";
+    private static final boolean PARALLEL_QUERIES = CoreSupportConfiguration.isParallelQueries();
+    private static ExecutorService queryExecutor;
+    private static boolean managedQueryExecutor;
+    private static ExecutorService asyncExecutor;
+    private static final Semaphore ASYNC_PERMITS = new Semaphore(Math.max(1, CoreSupportConfiguration.getAsyncMaxConcurrency()));
+
+    /**
+     * Get the query executor, resolving it on first use.
+     *
+     * @return
+     */
+    public static synchronized ExecutorService getQueryExecutor() {
+        final String METHODNAME = "getQueryExecutor ";
+        if (queryExecutor == null) {
+            if (CoreSupportConfiguration.isUseManagedExecutor()) {
+                try {
+                    queryExecutor = (ExecutorService) new InitialContext().lookup(DEFAULT_MANAGED_EXECUTOR_SERVICE);
+                    managedQueryExecutor = true;
+                } catch (NamingException | ClassCastException e) {
+                    logger.info(METHODNAME, DEFAULT_MANAGED_EXECUTOR_SERVICE, " is not available, using a private pool; Message: ", e.getMessage());
+                }
+            }
+            if (queryExecutor == null) {
+                queryExecutor = newBoundedExecutor("mts-rs-query",
+                        CoreSupportConfiguration.getQueryExecutorPoolSize(),
+                        CoreSupportConfiguration.getQueryExecutorQueueSize());
+            }
+            logger.info(METHODNAME, "queryExecutor=", queryExecutor);
+        }
+        return queryExecutor;
+    }
+
+    /**
+     * Get the executor the async resources run on, virtual threads when the JDK supports them and they are enabled,
+     * otherwise a bounded pool that rejects tasks once its queue is full.
+     *
+     * @return
+     */
+    public static synchronized ExecutorService getAsyncExecutor() {
+        final String METHODNAME = "getAsyncExecutor ";
+        if (asyncExecutor == null) {
+            if (CoreSupportConfiguration.isAsyncVirtualThreads()) {
+                try {
+                    // Java 21+, looked up reflectively as the code base targets 1.7
+                    asyncExecutor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                    logger.info(METHODNAME, "virtual threads are not available, using a private pool");
+                }
+            }
+            if (asyncExecutor == null) {
+                ThreadPoolExecutor threadPoolExecutor = newBoundedExecutor("mts-rs-async",
+                        CoreSupportConfiguration.getAsyncPoolSize(),
+                        CoreSupportConfiguration.getAsyncQueueSize());
+                threadPoolExecutor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+                asyncExecutor = threadPoolExecutor;
+            }
+            logger.info(METHODNAME, "asyncExecutor=", asyncExecutor);
+        }
+        return asyncExecutor;
+    }
+
+    /**
+     * Stop the private query and async executors, called when the application shuts down so a redeploy does not leak
+     * their threads and the webapp classloader. The container's managed executor is left to the container. The
+     * executors are recreated if they are used again.
+     */
+    public static void shutdown() {
+        final String METHODNAME = "shutdown ";
+        ExecutorService privateQueryExecutor;
+        ExecutorService privateAsyncExecutor;
+        synchronized (RsExecutors.class) {
+            privateQueryExecutor = managedQueryExecutor ? null : queryExecutor;
+            privateAsyncExecutor = asyncExecutor;
+            queryExecutor = null;
+            managedQueryExecutor = false;
+            asyncExecutor = null;
+        }
+        if (privateQueryExecutor != null) {
+            privateQueryExecutor.shutdownNow();
+            logger.info(METHODNAME, "queryExecutor shut down");
+        }
+        if (privateAsyncExecutor != null) {
+            privateAsyncExecutor.shutdownNow();
+            logger.info(METHODNAME, "asyncExecutor shut down");
+        }
+    }
+
+    /**
+     * Claim an async request slot.
+     *
+     * @return false when asyncMaxConcurrency requests are already in flight
+     */
+    public static boolean tryAcquireAsync() {
+        return ASYNC_PERMITS.tryAcquire();
+    }
+
+    public static void releaseAsync() {
+        ASYNC_PERMITS.release();
+    }
+
+    /**
+     * Submit a task to the query executor. The task runs on the calling thread if parallel queries are disabled or the
+     * executor rejects it.
+     *
+     * @param <V>
+     * @param callable
+     * @return
+     */
+    public static <V> Future<V> submit(Callable<V> callable) {
+        if (PARALLEL_QUERIES) {
+            try {
+                return getQueryExecutor().submit(callable);
+            } catch (RejectedExecutionException e) {
+                logger.warn("submit ", "query executor rejected the task, running on the calling thread");
+            }
+        }
+        return runInline(callable);
+    }
+
+    /**
+     * Run the task on the calling thread.
+     *
+     * @param <V>
+     * @param callable
+     * @return the completed future
+     */
+    public static <V> Future<V> runInline(Callable<V> callable) {
+        FutureTask<V> futureTask = new FutureTask<>(callable);
+        futureTask.run();
+        return futureTask;
+    }
+
+    /**
+     * Wait for a task and rethrow its exception as it was thrown by the MGR tier.
+     *
+     * @param <V>
+     * @param future
+     * @return
+     * @throws MtsException
+     * @throws NotFoundException
+     * @throws AuthenticationException
+     * @throws AuthorizationException
+     * @throws ValidationException
+     * @throws ConstraintViolationException
+     */
+    public static <V> V getResult(Future<V> future)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MtsException("An " + e.getClass().getSimpleName() + " has occurred; Message: " + e.getMessage(), e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof MtsException) {
+                throw (MtsException) cause;
+            } else if (cause instanceof NotFoundException) {
+                throw (NotFoundException) cause;
+            } else if (cause instanceof AuthenticationException) {
+                throw (AuthenticationException) cause;
+            } else if (cause instanceof AuthorizationException) {
+                throw (AuthorizationException) cause;
+            } else if (cause instanceof ValidationException) {
+                throw (ValidationException) cause;
+            } else if (cause instanceof ConstraintViolationException) {
+                throw (ConstraintViolationException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new MtsException("An " + cause.getClass().getSimpleName() + " has occurred; Message: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Cancel the tasks that have not completed, ignoring nulls.
+     *
+     * @param futures
+     */
+    public static void cancel(Future<?>... futures) {
+        for (Future<?> future : futures) {
+            if (future != null && !future.isDone()) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Create a bounded pool of daemon threads. Idle threads time out and, once the queue is full, tasks run on the
+     * submitting thread.
+     *
+     * @param name thread name prefix
+     * @param poolSize
+     * @param queueSize
+     * @return
+     */
+    public static ThreadPoolExecutor newBoundedExecutor(final String name, int poolSize, int queueSize) {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Math.max(1, queueSize)),
+                new ThreadFactory() {
+            private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, name + "-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+        return threadPoolExecutor;
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import org.cdsframework.enumeration.LogLevel;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+import org.cdsframework.util.LogUtils;
+
+/**
+ * Bounded memory copying of binary responses (reports, exports) to the client.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class RsStreamUtils {
+
+    private static final LogUtils logger = LogUtils.getLogger(RsStreamUtils.class);
+    /**
+     * Buffer size of copies that are not sized by a configured chunk size.
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Copy the input to the output in chunks of chunkSize bytes.
+     *
+     * @param in
+     * @param out
+     * @param chunkSize
+     * @return the number of bytes copied
+     * @throws IOException
+     */
+    public static long copy(InputStream in, OutputStream out, int chunkSize) throws IOException {
+        byte[] buffer = new byte[Math.max(1024, chunkSize)];
+        long count = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            count += read;
+        }
+        return count;
+    }
+
+    /**
+     * Copy the input to a spool file, the input is closed. The caller deletes the file.
+     *
+     * @param in
+     * @param prefix spool file name prefix
+     * @return the spool file
+     * @throws IOException
+     */
+    public static File spool(InputStream in, String prefix) throws IOException {
+        File file = createSpoolFile(prefix);
+        try (InputStream input = in; OutputStream out = new FileOutputStream(file)) {
+            copy(input, out, BUFFER_SIZE);
+        } catch (IOException | RuntimeException e) {
+            deleteFile(file);
+            throw e;
+        }
+        return file;
+    }
+
+    /**
+     * Create an empty temp file in the reportSpoolDirectory, java.io.tmpdir by default.
+     *
+     * @param prefix
+     * @return
+     * @throws IOException
+     */
+    public static File createSpoolFile(String prefix) throws IOException {
+        String spoolDirectory = CoreSupportConfiguration.getReportSpoolDirectory();
+        return File.createTempFile(prefix, ".spool", spoolDirectory != null ? new File(spoolDirectory) : null);
+    }
+
+    /**
+     * Get a stream over the bytes. Content larger than the spool threshold is written to a temp file, which is
+     * deleted when the stream is closed, so the array can be released before the client reads the response.
+     *
+     * @param content
+     * @param spoolThreshold
+     * @return
+     * @throws IOException
+     */
+    public static InputStream getSpooledInputStream(byte[] content, int spoolThreshold) throws IOException {
+        final String METHODNAME = "getSpooledInputStream ";
+        if (content.length <= spoolThreshold) {
+            return new ByteArrayInputStream(content);
+        }
+        long start = System.nanoTime();
+        File file = createSpoolFile("mts-rs-");
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(content);
+        } catch (IOException e) {
+            deleteFile(file);
+            throw e;
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug(METHODNAME, "spooled length=", content.length);
+            logger.logDuration(LogLevel.DEBUG, METHODNAME, start);
+        }
+        return new SpoolFileInputStream(file);
+    }
+
+    /**
+     * Get a StreamingOutput which copies the input to the client in chunks and closes it. Only the size and duration
+     * are logged.
+     *
+     * @param in
+     * @param chunkSize
+     * @param name logged with the size
+     * @return
+     */
+    public static StreamingOutput getStreamingOutput(final InputStream in, final int chunkSize, final String name) {
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException, WebApplicationException {
+                final String METHODNAME = "write ";
+                long start = System.nanoTime();
+                try (InputStream input = in) {
+                    long length = copy(input, out, chunkSize);
+                    out.flush();
+                    if (logger.isDebugEnabled()) {
+                        logger.debug(METHODNAME, name, " length=", length);
+                    }
+                } finally {
+                    logger.logDuration(LogLevel.DEBUG, METHODNAME + name + " ", start);
+                }
+            }
+        };
+    }
+
+    public static void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            logger.warn("deleteFile ", "unable to delete: ", file);
+        }
+    }
+
+    /**
+     * A temp file stream that removes the file on close.
+     */
+    private static final class SpoolFileInputStream extends FileInputStream {
+
+        private final File file;
+
+        private SpoolFileInputStream(File file) throws IOException {
+            super(file);
+            this.file = file;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                deleteFile(file);
+            }
+        }
+    }
+}
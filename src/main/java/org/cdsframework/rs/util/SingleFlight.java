@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import org.cdsframework.exceptions.AuthenticationException;
+import org.cdsframework.exceptions.AuthorizationException;
+import org.cdsframework.exceptions.ConstraintViolationException;
+import org.cdsframework.exceptions.MtsException;
+import org.cdsframework.exceptions.NotFoundException;
+import org.cdsframework.exceptions.ValidationException;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+
+/**
+ * Coalesces identical concurrent reads into one in flight MGR call.
+ *
+ * The first request for a key runs the call, requests for the same key arriving while it is in flight wait for it and
+ * share its result (or exception) instead of issuing their own. Shared results must be treated as read only. Nothing
+ * is cached, the key is released as soon as the call completes.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class SingleFlight {
+
+    private static final boolean ENABLED = CoreSupportConfiguration.isSingleFlight();
+    private static final ConcurrentMap<String, FutureTask<?>> IN_FLIGHT = new ConcurrentHashMap<>();
+    private static final AtomicLong CALL_COUNT = new AtomicLong();
+    private static final AtomicLong COALESCED_COUNT = new AtomicLong();
+    private static final AtomicLong WAIT_NANOS = new AtomicLong();
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Build the key of a read, maps are sorted and the expand set is ordered so equivalent requests match.
+     *
+     * @param operation
+     * @param resource
+     * @param query the primary key or query map
+     * @param queryClass
+     * @param propertyMap
+     * @param expand
+     * @param scope the authorization scope requests may share results within
+     * @return
+     */
+    public static String getKey(String operation, String resource, Object query, String queryClass, Map<String, Object> propertyMap,
+            List<String> expand, String scope) {
+        return operation + '\n' + resource + '\n' + DtoCache.normalizeKey(query) + '\n' + queryClass + '\n'
+                + DtoCache.normalizeKey(propertyMap) + '\n' + (expand != null ? new TreeSet<>(expand) : Collections.<String>emptySet())
+                + '\n' + scope;
+    }
+
+    /**
+     * Run the call, or join the identical call already in flight. A null key always runs the call.
+     *
+     * @param <V>
+     * @param key
+     * @param callable
+     * @return
+     * @throws MtsException
+     * @throws NotFoundException
+     * @throws AuthenticationException
+     * @throws AuthorizationException
+     * @throws ValidationException
+     * @throws ConstraintViolationException
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> V execute(String key, Callable<V> callable)
+            throws MtsException, NotFoundException, AuthenticationException, AuthorizationException, ValidationException, ConstraintViolationException {
+        if (key == null || !ENABLED) {
+            return RsExecutors.getResult(RsExecutors.runInline(callable));
+        }
+        FutureTask<V> futureTask = new FutureTask<>(callable);
+        FutureTask<V> inFlight = (FutureTask<V>) IN_FLIGHT.putIfAbsent(key, futureTask);
+        if (inFlight == null) {
+            CALL_COUNT.incrementAndGet();
+            try {
+                futureTask.run();
+            } finally {
+                IN_FLIGHT.remove(key, futureTask);
+            }
+            return RsExecutors.getResult(futureTask);
+        }
+        COALESCED_COUNT.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            return RsExecutors.getResult(inFlight);
+        } finally {
+            WAIT_NANOS.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Number of calls issued to the MGR tier.
+     *
+     * @return
+     */
+    public static long getCallCount() {
+        return CALL_COUNT.get();
+    }
+
+    /**
+     * Number of requests that joined a call in flight rather than issuing their own.
+     *
+     * @return
+     */
+    public static long getCoalescedCount() {
+        return COALESCED_COUNT.get();
+    }
+
+    /**
+     * Total time coalesced requests waited for the call in flight.
+     *
+     * @return nanoseconds
+     */
+    public static long getWaitNanos() {
+        return WAIT_NANOS.get();
+    }
+
+    public static int getInFlightCount() {
+        return IN_FLIGHT.size();
+    }
+}
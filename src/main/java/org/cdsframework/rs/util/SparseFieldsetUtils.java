@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2016 New York City Department of Health and Mental Hygiene, Bureau of Immunization
+ * Contributions by HLN Consulting, LLC
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms of the GNU
+ * Lesser General Public License as published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version. You should have received a copy of the GNU Lesser
+ * General Public License along with this program. If not, see <http://www.gnu.org/licenses/> for more
+ * details.
+ *
+ * The above-named contributors (HLN Consulting, LLC) are also licensed by the New York City
+ * Department of Health and Mental Hygiene, Bureau of Immunization to have (without restriction,
+ * limitation, and warranty) complete irrevocable access and rights to this project.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; THE
+ *
+ * SOFTWARE IS PROVIDED "AS IS" WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING,
+ * BUT NOT LIMITED TO, WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE COPYRIGHT HOLDERS, IF ANY, OR DEVELOPERS BE LIABLE FOR
+ * ANY CLAIM, DAMAGES, OR OTHER LIABILITY OF ANY KIND, ARISING FROM, OUT OF, OR IN CONNECTION WITH
+ * THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ *
+ * For more information about the this software, see http://www.hln.com/ice or send
+ * correspondence to ice@hln.com.
+ */
+package org.cdsframework.rs.util;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.WeakHashMap;
+import javax.ws.rs.ext.Providers;
+import org.cdsframework.base.BaseDTO;
+import org.cdsframework.exceptions.ValidationException;
+import org.cdsframework.rs.core.support.CatResourceConfig;
+import org.cdsframework.rs.core.support.CoreSupportConfiguration;
+import org.cdsframework.util.StringUtils;
+
+/**
+ * Sparse fieldsets, serializing only the DTO properties a client asked for.
+ *
+ * Fields are property names or dotted paths into nested DTOs (i.e; facility.name), naming a nested DTO includes all
+ * of its properties. Writers are built from a copy of the application's ObjectMapper with a property filter mixed
+ * into BaseDTO and cached per DTO class and field set.
+ *
+ * @author HLN Consulting, LLC
+ */
+public class SparseFieldsetUtils {
+
+    private static final String FILTER_ID = "org.cdsframework.rs.fields";
+    private static final Map<ObjectMapper, ObjectMapper> FILTERED_OBJECT_MAPPERS = Collections.synchronizedMap(new WeakHashMap<ObjectMapper, ObjectMapper>());
+    private static final LruCache<String, ObjectWriter> OBJECT_WRITERS = new LruCache<>(CoreSupportConfiguration.getFieldsWriterCacheSize());
+
+    /**
+     * Parse the fields parameter values, each may be a comma separated list. The first segment of every field must be
+     * in the resource's CatResourceConfig field map, when one is registered, and its primary key fields are always
+     * included.
+     *
+     * @param fields
+     * @param dtoClass
+     * @return the field set or null if no fields were requested
+     * @throws ValidationException
+     */
+    public static Set<String> getFields(List<String> fields, Class<? extends BaseDTO> dtoClass) throws ValidationException {
+        if (fields == null || fields.isEmpty()) {
+            return null;
+        }
+        CatResourceConfig catResourceConfig = CatResourceConfigUtils.getCatResourceConfig(dtoClass);
+        Set<String> result = new TreeSet<>();
+        for (String value : fields) {
+            if (value == null) {
+                continue;
+            }
+            for (String field : value.split(",")) {
+                field = field.trim();
+                if (StringUtils.isEmpty(field)) {
+                    continue;
+                }
+                int dot = field.indexOf('.');
+                String property = dot > -1 ? field.substring(0, dot) : field;
+                if (catResourceConfig != null && !catResourceConfig.getFieldMap().containsKey(property)) {
+                    throw new ValidationException("Unknown field: " + field);
+                }
+                result.add(field);
+            }
+        }
+        if (result.isEmpty()) {
+            return null;
+        }
+        if (catResourceConfig != null) {
+            result.addAll(catResourceConfig.getPrimaryKeyList());
+        }
+        return result;
+    }
+
+    /**
+     * Get a streaming writer restricted to the fields.
+     *
+     * @param providers may be null
+     * @param dtoClass
+     * @param fields
+     * @return
+     */
+    public static ObjectWriter getStreamingWriter(Providers providers, Class<?> dtoClass, Set<String> fields) {
+        ObjectMapper objectMapper = JsonStreamingUtils.getObjectMapper(providers, dtoClass);
+        String key = System.identityHashCode(objectMapper) + "\n" + dtoClass.getName() + "\n" + fields;
+        ObjectWriter objectWriter = OBJECT_WRITERS.get(key);
+        if (objectWriter == null) {
+            objectWriter = getFilteredObjectMapper(objectMapper)
+                    .writer(new SimpleFilterProvider().addFilter(FILTER_ID, new FieldsFilter(fields)))
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            OBJECT_WRITERS.put(key, objectWriter);
+        }
+        return objectWriter;
+    }
+
+    private static ObjectMapper getFilteredObjectMapper(ObjectMapper objectMapper) {
+        synchronized (FILTERED_OBJECT_MAPPERS) {
+            ObjectMapper filteredObjectMapper = FILTERED_OBJECT_MAPPERS.get(objectMapper);
+            if (filteredObjectMapper == null) {
+                filteredObjectMapper = objectMapper.copy().addMixIn(BaseDTO.class, FieldsFilterMixIn.class);
+                FILTERED_OBJECT_MAPPERS.put(objectMapper, filteredObjectMapper);
+            }
+            return filteredObjectMapper;
+        }
+    }
+
+    @JsonFilter(FILTER_ID)
+    private static abstract class FieldsFilterMixIn {
+    }
+
+    /**
+     * Includes a property when its dotted path was requested, is on the way to a requested path or is inside a
+     * requested nested DTO.
+     */
+    private static final class FieldsFilter extends SimpleBeanPropertyFilter {
+
+        private final Set<String> fields;
+        private final Set<String> parentPaths = new TreeSet<>();
+
+        private FieldsFilter(Set<String> fields) {
+            this.fields = fields;
+            for (String field : fields) {
+                int dot = field.lastIndexOf('.');
+                while (dot > -1) {
+                    field = field.substring(0, dot);
+                    parentPaths.add(field);
+                    dot = field.lastIndexOf('.');
+                }
+            }
+        }
+
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator jgen, SerializerProvider provider, PropertyWriter writer) throws Exception {
+            if (isIncluded(getPath(jgen.getOutputContext(), writer.getName()))) {
+                writer.serializeAsField(pojo, jgen, provider);
+            } else if (!jgen.canOmitFields()) {
+                writer.serializeAsOmittedField(pojo, jgen, provider);
+            }
+        }
+
+        private boolean isIncluded(String path) {
+            if (fields.contains(path) || parentPaths.contains(path)) {
+                return true;
+            }
+            int dot = path.lastIndexOf('.');
+            while (dot > -1) {
+                path = path.substring(0, dot);
+                if (fields.contains(path)) {
+                    return true;
+                }
+                dot = path.lastIndexOf('.');
+            }
+            return false;
+        }
+
+        /**
+         * The property's path is the names of the enclosing object fields, list elements share their list's path.
+         */
+        private static String getPath(JsonStreamContext context, String name) {
+            StringBuilder path = new StringBuilder(name);
+            for (JsonStreamContext parent = context.getParent(); parent != null; parent = parent.getParent()) {
+                if (parent.inObject() && parent.getCurrentName() != null) {
+                    path.insert(0, '.').insert(0, parent.getCurrentName());
+                }
+            }
+            return path.toString();
+        }
+    }
+}